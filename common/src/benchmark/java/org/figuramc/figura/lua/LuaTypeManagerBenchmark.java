@@ -0,0 +1,149 @@
+package org.figuramc.figura.lua;
+
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Varargs;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.invoke.*;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Cost of calling a whitelisted method, cycling over four methods with 0 to 2 boxed arguments.
+ * The dispatch benchmarks compare the ways LuaTypeManager could call the method: reflection, the method handle its
+ * invokers use, and a LambdaMetafactory class per method. {@link #luaWrapper} is the whole path a script call takes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+public class LuaTypeManagerBenchmark {
+
+    @LuaWhitelist
+    public static class Target {
+        public double sum;
+
+        @LuaWhitelist
+        public Object none() {
+            return sum;
+        }
+
+        @LuaWhitelist
+        public Object one(Double a) {
+            sum += a;
+            return sum;
+        }
+
+        @LuaWhitelist
+        public Object two(Double a, Double b) {
+            sum += a * b;
+            return sum;
+        }
+
+        @LuaWhitelist
+        public Object flag(Boolean b) {
+            return b ? sum : -sum;
+        }
+    }
+
+    private static final String[] NAMES = {"none", "one", "two", "flag"};
+    private static final MethodType GENERIC_TYPE = MethodType.methodType(Object.class, Object.class, Object[].class);
+
+    private final Target target = new Target();
+    private final Object[][] args = {{}, {1.5}, {0.5, 2d}, {true}};
+    private final Method[] methods = new Method[4];
+    private final MethodHandle[] handles = new MethodHandle[4];
+    private final Object[] lambdas = new Object[4];
+
+    private LuaValue userdata;
+    private final LuaValue[] functions = new LuaValue[4];
+    private final Varargs[] luaArgs = new Varargs[4];
+
+    private int index;
+
+    @Setup
+    public void setup() throws Throwable {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        for (int i = 0; i < 4; i++) {
+            Method method = Target.class.getMethod(NAMES[i], paramTypes(i));
+            methods[i] = method;
+
+            // same adaptation as LuaTypeManager.Invoker
+            MethodHandle handle = lookup.unreflect(method).asFixedArity();
+            handles[i] = handle.asSpreader(Object[].class, method.getParameterCount()).asType(GENERIC_TYPE);
+
+            Class<?> iface = switch (method.getParameterCount()) {
+                case 0 -> Function.class;
+                case 1 -> BiFunction.class;
+                default -> TriFunction.class;
+            };
+            MethodHandle direct = lookup.unreflect(method);
+            MethodType erased = direct.type().erase().changeReturnType(Object.class);
+            CallSite site = LambdaMetafactory.metafactory(lookup, "apply", MethodType.methodType(iface),
+                    erased, direct, direct.type());
+            lambdas[i] = site.getTarget().invoke();
+        }
+
+        LuaTypeManager manager = new LuaTypeManager();
+        manager.generateMetatableFor(Target.class);
+        userdata = manager.javaToLua(target).arg1();
+        luaArgs[0] = userdata;
+        luaArgs[1] = LuaValue.varargsOf(userdata, LuaValue.valueOf(1.5));
+        luaArgs[2] = LuaValue.varargsOf(userdata, LuaValue.valueOf(0.5), LuaValue.valueOf(2));
+        luaArgs[3] = LuaValue.varargsOf(userdata, LuaValue.TRUE);
+        for (int i = 0; i < 4; i++)
+            functions[i] = userdata.get(NAMES[i]);
+    }
+
+    private static Class<?>[] paramTypes(int i) {
+        return switch (i) {
+            case 0 -> new Class<?>[0];
+            case 1 -> new Class<?>[]{Double.class};
+            case 2 -> new Class<?>[]{Double.class, Double.class};
+            default -> new Class<?>[]{Boolean.class};
+        };
+    }
+
+    private int next() {
+        return index = (index + 1) & 3;
+    }
+
+    @Benchmark
+    public Object methodInvoke() throws Exception {
+        int i = next();
+        return methods[i].invoke(target, args[i]);
+    }
+
+    @Benchmark
+    public Object methodHandle() throws Throwable {
+        int i = next();
+        return (Object) handles[i].invokeExact((Object) target, args[i]);
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public Object lambdaMetafactory() {
+        int i = next();
+        Object[] a = args[i];
+        return switch (a.length) {
+            case 0 -> ((Function<Object, Object>) lambdas[i]).apply(target);
+            case 1 -> ((BiFunction<Object, Object, Object>) lambdas[i]).apply(target, a[0]);
+            default -> ((TriFunction) lambdas[i]).apply(target, a[0], a[1]);
+        };
+    }
+
+    @Benchmark
+    public Varargs luaWrapper() {
+        int i = next();
+        return functions[i].invoke(luaArgs[i]);
+    }
+
+    @FunctionalInterface
+    public interface TriFunction {
+        Object apply(Object a, Object b, Object c);
+    }
+}
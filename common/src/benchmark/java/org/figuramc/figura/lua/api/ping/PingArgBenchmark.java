@@ -0,0 +1,105 @@
+package org.figuramc.figura.lua.api.ping;
+
+import org.luaj.vm2.LuaTable;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Varargs;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding of an incoming ping, read from offset 5 of a websocket message like S2CMessageHandler does.
+ * {@link #copyAndStream} is the decoder from before the buffer slices, kept here as the baseline.
+ * Vectors and matrices need a running avatar to be wrapped, so the ping only holds plain lua values.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 3, jvmArgs = "-Xmx256m")
+public class PingArgBenchmark {
+
+    private static final int HEADER = 5;
+
+    private byte[] message;
+
+    @Setup
+    public void setup() {
+        LuaTable table = new LuaTable();
+        table.set(1, LuaValue.valueOf(12));
+        table.set("key", LuaValue.valueOf("value"));
+
+        Varargs args = LuaValue.varargsOf(new LuaValue[]{
+                LuaValue.valueOf(42),
+                LuaValue.valueOf("animation"),
+                LuaValue.TRUE,
+                LuaValue.valueOf(0.75),
+                table
+        });
+        byte[] ping = new PingArg(args, PingArg.ENCODING_DOUBLE).toByteArray();
+
+        message = new byte[HEADER + ping.length];
+        System.arraycopy(ping, 0, message, HEADER, ping.length);
+    }
+
+    @Benchmark
+    public Varargs bufferSlice() {
+        return PingArg.fromByteBuffer(ByteBuffer.wrap(message).position(HEADER).slice(), null);
+    }
+
+    @Benchmark
+    public LuaValue[] copyAndStream() throws IOException {
+        byte[] bytes = Arrays.copyOfRange(message, HEADER, message.length);
+        DataInputStream dis = new DataInputStream(new ByteArrayInputStream(bytes));
+
+        List<LuaValue> luaValues = new ArrayList<>();
+        while (dis.available() > 0)
+            luaValues.add(readArg(dis));
+
+        return luaValues.toArray(new LuaValue[0]);
+    }
+
+    // -- baseline decoder -- //
+
+    private static LuaValue readArg(DataInputStream dis) throws IOException {
+        byte type = dis.readByte();
+
+        return switch (type) {
+            case 1 -> LuaValue.valueOf(true);
+            case 2 -> LuaValue.valueOf(false);
+            case 12, 13, 14, 15 -> LuaValue.valueOf(readInt(dis, type));
+            case 3 -> LuaValue.valueOf(dis.readDouble());
+            case 4 -> LuaValue.valueOf(dis.readNBytes(dis.readUnsignedShort()));
+            case 5 -> readTable(dis);
+            default -> LuaValue.NIL;
+        };
+    }
+
+    private static int readInt(DataInputStream dis, byte type) throws IOException {
+        return switch (type) {
+            case 12 -> dis.readByte();
+            case 13 -> dis.readShort();
+            case 14 -> (int) dis.readShort() << 8 | dis.readByte() & 0xFF;
+            case 15 -> dis.readInt();
+            default -> 0;
+        };
+    }
+
+    private static LuaValue readTable(DataInputStream dis) throws IOException {
+        int size = readInt(dis, dis.readByte());
+        LuaTable table = new LuaTable();
+
+        for (int i = 0; i < size; i++)
+            table.set(readArg(dis), readArg(dis));
+
+        return table;
+    }
+}
@@ -0,0 +1,131 @@
+package org.figuramc.figura.model;
+
+import net.minecraft.nbt.*;
+import org.figuramc.figura.model.rendering.Vertex;
+import org.figuramc.figura.parsers.BlockbenchModelParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading a mesh part with about 26k vertices and 25k quads, stored in the list based and in the packed model format.
+ * The nbt is built with the same layout BlockbenchModelParser writes. Run with "-prof gc" to see the allocations per read.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 3, jvmArgs = "-Xmx2g")
+public class MeshReadBenchmark {
+
+    // 160 * 160 quads, on a 161 * 161 vertex grid
+    @Param({"160"})
+    public int size;
+
+    private CompoundTag listMesh;
+    private CompoundTag packedMesh;
+
+    @Setup
+    public void setup() {
+        int side = size + 1;
+        float[] vtx = new float[side * side * 3];
+        for (int x = 0; x < side; x++) {
+            for (int z = 0; z < side; z++) {
+                int i = (x * side + z) * 3;
+                vtx[i] = x;
+                vtx[i + 1] = (float) (Math.sin(x * 0.3) + Math.cos(z * 0.2));
+                vtx[i + 2] = z;
+            }
+        }
+
+        int quads = size * size;
+        int[] tex = new int[quads];
+        int[] fac = new int[quads * 4];
+        float[] uvs = new float[quads * 8];
+        for (int x = 0, q = 0; x < size; x++) {
+            for (int z = 0; z < size; z++, q++) {
+                tex[q] = 4; // texture 0, 4 vertices
+                fac[q * 4] = x * side + z;
+                fac[q * 4 + 1] = x * side + z + 1;
+                fac[q * 4 + 2] = (x + 1) * side + z + 1;
+                fac[q * 4 + 3] = (x + 1) * side + z;
+                for (int j = 0; j < 8; j++)
+                    uvs[q * 8 + j] = (j & 1) == 0 ? x : z;
+            }
+        }
+
+        // list based format, the indices are shorts below 32768 vertices
+        CompoundTag list = new CompoundTag();
+        ListTag vtxList = new ListTag();
+        for (float f : vtx)
+            vtxList.add(FloatTag.valueOf(f));
+        ListTag texList = new ListTag();
+        for (int t : tex)
+            texList.add(ShortTag.valueOf((short) t));
+        ListTag facList = new ListTag();
+        for (int f : fac)
+            facList.add(ShortTag.valueOf((short) f));
+        ListTag uvsList = new ListTag();
+        for (float f : uvs)
+            uvsList.add(FloatTag.valueOf(f));
+        list.put("vtx", vtxList);
+        list.put("tex", texList);
+        list.put("fac", facList);
+        list.put("uvs", uvsList);
+        listMesh = new CompoundTag();
+        listMesh.put("mesh_data", list);
+
+        // packed format
+        CompoundTag packed = new CompoundTag();
+        packed.putByte("fmt", BlockbenchModelParser.PACKED_FORMAT);
+        packed.putByteArray("vtx", packFloats(vtx));
+        packed.putByteArray("tex", packVarInts(tex));
+        packed.putByteArray("fac", packVarInts(fac));
+        packed.putByteArray("uvs", packFloats(uvs));
+        packedMesh = new CompoundTag();
+        packedMesh.put("mesh_data", packed);
+    }
+
+    private static byte[] packFloats(float[] floats) {
+        ByteBuffer buffer = ByteBuffer.allocate(floats.length * 4).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asFloatBuffer().put(floats);
+        return buffer.array();
+    }
+
+    private static byte[] packVarInts(int[] ints) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int value : ints) {
+            while ((value & ~0x7F) != 0) {
+                out.write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.write(value);
+        }
+        return out.toByteArray();
+    }
+
+    private static Map<Integer, List<Vertex>> read(CompoundTag mesh) {
+        List<Integer> facesByTexture = new ArrayList<>(List.of(0));
+        Map<Integer, List<Vertex>> vertices = new HashMap<>();
+        FiguraModelPartReader.readMesh(facesByTexture, mesh, vertices);
+        return vertices;
+    }
+
+    @Benchmark
+    public Map<Integer, List<Vertex>> listTags() {
+        return read(listMesh);
+    }
+
+    @Benchmark
+    public Map<Integer, List<Vertex>> packedBytes() {
+        return read(packedMesh);
+    }
+}
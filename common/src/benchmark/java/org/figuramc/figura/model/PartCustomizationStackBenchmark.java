@@ -0,0 +1,90 @@
+package org.figuramc.figura.model;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Stack;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One render traversal over a part tree: every part gets its animation values written, recalculates its matrices and
+ * is pushed onto the customization stack, like the immediate renderer does.
+ * {@link #stackCopy} is the stack from before the frames were pooled, kept here as the baseline.
+ * Run with "-prof gc" to see the allocations per traversal.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+public class PartCustomizationStackBenchmark {
+
+    // 4 children per group, 4 levels deep, 341 parts in total
+    @Param({"4"})
+    public int children;
+    @Param({"4"})
+    public int levels;
+
+    private Node root;
+    private final PartCustomization.PartCustomizationStack stack = new PartCustomization.PartCustomizationStack();
+    private final Stack<PartCustomization> oldStack = new Stack<>();
+
+    private static class Node {
+        private final PartCustomization customization = new PartCustomization();
+        private final Node[] children;
+
+        private Node(int children, int levels) {
+            customization.needsMatrixRecalculation = true;
+            this.children = new Node[levels > 0 ? children : 0];
+            for (int i = 0; i < this.children.length; i++)
+                this.children[i] = new Node(children, levels - 1);
+        }
+    }
+
+    @Setup
+    public void setup() {
+        root = new Node(children, levels);
+        oldStack.add(new PartCustomization());
+    }
+
+    @Benchmark
+    public PartCustomization pooledStack() {
+        render(root);
+        return stack.peek();
+    }
+
+    @Benchmark
+    public PartCustomization stackCopy() {
+        renderOld(root);
+        return oldStack.peek();
+    }
+
+    private void render(Node node) {
+        PartCustomization customization = node.customization;
+        // animations write their values every frame, even when they did not change
+        customization.setAnimRot(0, 15, 0);
+        customization.recalculate();
+
+        stack.push(customization);
+        for (Node child : node.children)
+            render(child);
+        stack.pop();
+    }
+
+    private void renderOld(Node node) {
+        PartCustomization customization = node.customization;
+        // setters always flagged the matrices before, even without a change
+        customization.setAnimRot(0, 15, 0);
+        customization.needsMatrixRecalculation = true;
+        customization.recalculate();
+
+        PartCustomization newCustomization = new PartCustomization();
+        oldStack.peek().copyTo(newCustomization);
+        newCustomization.modify(customization);
+        oldStack.push(newCustomization);
+
+        for (Node child : node.children)
+            renderOld(child);
+        oldStack.pop();
+    }
+}
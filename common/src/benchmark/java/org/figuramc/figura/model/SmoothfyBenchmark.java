@@ -0,0 +1,108 @@
+package org.figuramc.figura.model;
+
+import org.figuramc.figura.math.vector.FiguraVec3;
+import org.figuramc.figura.model.rendering.Vertex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Smooth normals of a mesh part with about 100k vertices: a grid of quads, where every inner corner is shared by four quads.
+ * With "jitter" the copies of a corner are moved apart by less than the weld epsilon, like float noise from blockbench.
+ * {@link #stringKeys} is the smoothfy from before the spatial hash, kept here as the baseline.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(3)
+public class SmoothfyBenchmark {
+
+    // 158 * 158 quads, 99,856 vertices
+    @Param({"158"})
+    public int size;
+    @Param({"false", "true"})
+    public boolean jitter;
+
+    private float[] source;
+    private Map<Integer, List<Vertex>> vertices;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(1234);
+        List<Vertex> list = new ArrayList<>(size * size * 4);
+        for (int x = 0; x < size; x++) {
+            for (int z = 0; z < size; z++) {
+                // a slightly bumpy surface, so the face normals differ
+                list.add(vertex(random, x, z));
+                list.add(vertex(random, x, z + 1));
+                list.add(vertex(random, x + 1, z + 1));
+                list.add(vertex(random, x + 1, z));
+            }
+        }
+
+        source = new float[list.size() * 6];
+        for (int i = 0; i < list.size(); i++) {
+            Vertex v = list.get(i);
+            source[i * 6] = v.x; source[i * 6 + 1] = v.y; source[i * 6 + 2] = v.z;
+            source[i * 6 + 3] = v.nx; source[i * 6 + 4] = v.ny; source[i * 6 + 5] = v.nz;
+        }
+        vertices = Map.of(0, list);
+    }
+
+    private Vertex vertex(Random random, int x, int z) {
+        float y = (float) (Math.sin(x * 0.3) + Math.cos(z * 0.2));
+        float j = jitter ? 1e-4f : 0f;
+        return new Vertex(
+                x + (random.nextFloat() - 0.5f) * j, y + (random.nextFloat() - 0.5f) * j, z + (random.nextFloat() - 0.5f) * j,
+                0, 0,
+                random.nextFloat() - 0.5f, 1f, random.nextFloat() - 0.5f
+        );
+    }
+
+    // smoothfy changes the normals, so every run starts from the same mesh
+    @Setup(Level.Invocation)
+    public void reset() {
+        List<Vertex> list = vertices.get(0);
+        for (int i = 0; i < list.size(); i++) {
+            Vertex v = list.get(i);
+            v.x = source[i * 6]; v.y = source[i * 6 + 1]; v.z = source[i * 6 + 2];
+            v.nx = source[i * 6 + 3]; v.ny = source[i * 6 + 4]; v.nz = source[i * 6 + 5];
+        }
+    }
+
+    @Benchmark
+    public Map<Integer, List<Vertex>> spatialHash() {
+        FiguraModelPartReader.smoothfy(vertices, 1e-4f, false);
+        return vertices;
+    }
+
+    @Benchmark
+    public Map<Integer, List<Vertex>> spatialHashAngleWeighted() {
+        FiguraModelPartReader.smoothfy(vertices, 1e-4f, true);
+        return vertices;
+    }
+
+    @Benchmark
+    public Map<Integer, List<Vertex>> stringKeys() {
+        Map<String, List<Vertex>> verticesByPos = new HashMap<>();
+        for (List<Vertex> list : vertices.values()) {
+            for (Vertex vertex : list) {
+                String id = String.valueOf(vertex.getPos());
+                verticesByPos.computeIfAbsent(id, str -> new ArrayList<>(4)).add(vertex);
+            }
+        }
+
+        for (List<Vertex> list : verticesByPos.values()) {
+            FiguraVec3 result = FiguraVec3.of();
+            for (Vertex vertex : list)
+                result.add(vertex.getNormal());
+            result.normalize();
+            for (Vertex vertex : list)
+                vertex.setNormal(result);
+        }
+        return vertices;
+    }
+}
@@ -18,6 +18,7 @@ import org.figuramc.figura.config.Configs;
 import org.figuramc.figura.entries.EntryPointManager;
 import org.figuramc.figura.font.Emojis;
 import org.figuramc.figura.lua.FiguraLuaPrinter;
+import org.figuramc.figura.lua.LuaScriptCache;
 import org.figuramc.figura.lua.docs.FiguraDocsManager;
 import org.figuramc.figura.mixin.SkullBlockEntityAccessor;
 import org.figuramc.figura.permissions.PermissionManager;
@@ -63,6 +64,7 @@ public class FiguraMod {
         PermissionManager.init();
         LocalAvatarFetcher.init();
         CacheAvatarLoader.init();
+        LuaScriptCache.init();
         FiguraDocsManager.init();
         FiguraRuntimeResources.init();
 
@@ -3,9 +3,12 @@ package org.figuramc.figura.animation;
 import com.mojang.datafixers.util.Pair;
 import org.figuramc.figura.FiguraMod;
 import org.figuramc.figura.avatar.Avatar;
+import org.figuramc.figura.lua.FiguraLuaRuntime;
+import org.figuramc.figura.lua.LuaScriptCache;
 import org.figuramc.figura.math.vector.FiguraVec3;
 import org.luaj.vm2.LuaError;
 import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Prototype;
 import org.luaj.vm2.Varargs;
 
 public class Keyframe implements Comparable<Keyframe> {
@@ -15,7 +18,7 @@ public class Keyframe implements Comparable<Keyframe> {
     private final float time;
     private final Interpolation interpolation;
     private final FiguraVec3 targetA, targetB;
-    private final String[] aCode, bCode;
+    private final Expression[] aCode, bCode;
     private final String chunkName;
     private final FiguraVec3 bezierLeft, bezierRight;
     private final FiguraVec3 bezierLeftTime, bezierRightTime;
@@ -27,9 +30,9 @@ public class Keyframe implements Comparable<Keyframe> {
         this.interpolation = interpolation;
         this.targetA = a.getFirst();
         this.targetB = b.getFirst();
-        this.aCode = a.getSecond();
-        this.bCode = b.getSecond();
         this.chunkName = animation.getName() + " keyframe (" + time + "s)";
+        this.aCode = compile(a.getSecond());
+        this.bCode = a.getSecond() == b.getSecond() ? aCode : compile(b.getSecond());
         this.bezierLeft = bezierLeft;
         this.bezierRight = bezierRight;
         this.bezierLeftTime = bezierLeftTime;
@@ -37,50 +40,96 @@ public class Keyframe implements Comparable<Keyframe> {
     }
 
     public FiguraVec3 getTargetA(float delta) {
-        return targetA != null ? targetA.copy() : FiguraVec3.of(parseStringData(aCode[0], delta), parseStringData(aCode[1], delta), parseStringData(aCode[2], delta));
+        return targetA != null ? targetA.copy() : FiguraVec3.of(aCode[0].get(delta), aCode[1].get(delta), aCode[2].get(delta));
     }
 
     public FiguraVec3 getTargetB(float delta) {
-        return targetB != null ? targetB.copy() : FiguraVec3.of(parseStringData(bCode[0], delta), parseStringData(bCode[1], delta), parseStringData(bCode[2], delta));
+        return targetB != null ? targetB.copy() : FiguraVec3.of(bCode[0].get(delta), bCode[1].get(delta), bCode[2].get(delta));
     }
 
-    private float parseStringData(String data, float delta) {
-        FiguraMod.pushProfiler(data);
-        try {
-            return FiguraMod.popReturnProfiler(Float.parseFloat(data));
-        } catch (Exception ignored) {
-            if (data == null)
-                return FiguraMod.popReturnProfiler(0f);
+    private Expression[] compile(String[] code) {
+        if (code == null)
+            return null;
 
+        Expression[] expressions = new Expression[code.length];
+        for (int i = 0; i < code.length; i++)
+            expressions[i] = new Expression(code[i]);
+        return expressions;
+    }
+
+    /**
+     * A single keyframe channel, classified once when loading.
+     * Numbers are kept as floats, and code is compiled ahead, only being bound to the avatar runtime on its first use
+     */
+    private class Expression {
+        private final String data;
+        private final float constant;
+        private final Prototype prototype;
+        private final LuaError compileError;
+
+        private FiguraLuaRuntime runtime;
+        private LuaValue function;
+
+        private Expression(String data) {
+            this.data = data;
+
+            float constant = 0f;
+            Prototype prototype = null;
+            LuaError compileError = null;
+
+            if (data != null && !data.isBlank()) {
+                try {
+                    constant = Float.parseFloat(data);
+                } catch (NumberFormatException ignored) {
+                    // prefer the data as an expression, otherwise it may be a full chunk with its own return
+                    try {
+                        prototype = LuaScriptCache.getPrototype(chunkName, "return " + data, false);
+                    } catch (LuaError e) {
+                        try {
+                            prototype = LuaScriptCache.getPrototype(chunkName, data, false);
+                        } catch (LuaError e2) {
+                            compileError = e2;
+                        }
+                    }
+                }
+            }
+
+            this.constant = constant;
+            this.prototype = prototype;
+            this.compileError = compileError;
+        }
+
+        private float get(float delta) {
+            if (prototype == null && compileError == null)
+                return constant;
+
+            FiguraMod.pushProfiler(data);
             try {
-                LuaValue val = owner.loadScript(chunkName, "return " + data);
-                if (val == null)
+                if (compileError != null)
+                    throw compileError;
+
+                // bind the function once per runtime
+                if (runtime != owner.luaRuntime || function == null) {
+                    runtime = owner.luaRuntime;
+                    function = owner.loadScript(prototype);
+                }
+                if (function == null)
                     return FiguraMod.popReturnProfiler(0f);
 
-                Varargs args = owner.run(val, owner.animation, delta, animation);
+                Varargs args = owner.run(function, owner.animation, delta, animation);
+                if (args == null)
+                    return FiguraMod.popReturnProfiler(0f);
                 if (args.isnumber(1))
                     return FiguraMod.popReturnProfiler(args.tofloat(1));
-                else
-                    throw new Exception(); // dummy exception
-            } catch (Exception ignored2) {
-                try {
-                    LuaValue val = owner.loadScript(chunkName, data);
-                    if (val == null)
-                        return FiguraMod.popReturnProfiler(0f);
-
-                    Varargs args = owner.run(val, owner.animation, delta, animation);
-                    if (args.isnumber(1))
-                        return FiguraMod.popReturnProfiler(args.tofloat(1));
-                    else
-                        throw new LuaError("Failed to parse data from [" + this.chunkName + "], expected number, but got " + args.arg(1).typename());
-                } catch (Exception e) {
-                    if (owner.luaRuntime != null)
-                        owner.luaRuntime.error(e);
-                }
+
+                throw new LuaError("Failed to parse data from [" + chunkName + "], expected number, but got " + args.arg(1).typename());
+            } catch (Exception e) {
+                if (owner.luaRuntime != null)
+                    owner.luaRuntime.error(e);
             }
-        }
 
-        return FiguraMod.popReturnProfiler(0f);
+            return FiguraMod.popReturnProfiler(0f);
+        }
     }
 
     public float getTime() {
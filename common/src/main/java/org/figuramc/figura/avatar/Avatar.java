@@ -1,7 +1,5 @@
 package org.figuramc.figura.avatar;
 
-import com.mojang.blaze3d.audio.OggAudioStream;
-import com.mojang.blaze3d.audio.SoundBuffer;
 import com.mojang.blaze3d.platform.Lighting;
 import com.mojang.blaze3d.platform.NativeImage;
 import com.mojang.blaze3d.systems.RenderSystem;
@@ -43,6 +41,7 @@ import org.figuramc.figura.lua.api.entity.EntityAPI;
 import org.figuramc.figura.lua.api.particle.ParticleAPI;
 import org.figuramc.figura.lua.api.ping.PingArg;
 import org.figuramc.figura.lua.api.ping.PingFunction;
+import org.figuramc.figura.lua.api.sound.CustomSound;
 import org.figuramc.figura.lua.api.sound.SoundAPI;
 import org.figuramc.figura.lua.api.world.BlockStateAPI;
 import org.figuramc.figura.lua.api.world.ItemStackAPI;
@@ -54,6 +53,7 @@ import org.figuramc.figura.model.ParentType;
 import org.figuramc.figura.model.PartCustomization;
 import org.figuramc.figura.model.rendering.AvatarRenderer;
 import org.figuramc.figura.model.rendering.EntityRenderMode;
+import org.figuramc.figura.model.rendering.BakedAvatarRenderer;
 import org.figuramc.figura.model.rendering.ImmediateAvatarRenderer;
 import org.figuramc.figura.model.rendering.PartFilterScheme;
 import org.figuramc.figura.model.rendering.texture.FiguraTexture;
@@ -71,14 +71,14 @@ import org.joml.Quaternionf;
 import org.joml.Vector3f;
 import org.luaj.vm2.LuaError;
 import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Prototype;
 import org.luaj.vm2.Varargs;
 
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.function.Consumer;
 
@@ -87,14 +87,14 @@ import java.util.function.Consumer;
 // and also related to the owner, like its permissions
 public class Avatar {
 
-    private static CompletableFuture<Void> tasks;
     public static boolean firstPerson;
 
     // properties
     public final UUID owner;
     public final EntityType<?> entityType;
     public CompoundTag nbt;
-    public boolean loaded = true;
+    public volatile boolean loaded = true;
+    private volatile boolean cancelled;
     public final boolean isHost;
 
     //metadata
@@ -121,7 +121,7 @@ public class Avatar {
 
     public final PermissionPack.PlayerPermissionPack permissions;
 
-    public final Map<String, SoundBuffer> customSounds = new HashMap<>();
+    public final Map<String, CustomSound> customSounds = new HashMap<>();
     public final Map<Integer, Animation> animations = new HashMap<>();
 
     // runtime status
@@ -170,71 +170,85 @@ public class Avatar {
     }
 
     public void load(CompoundTag nbt) {
-        Runnable toRun = () -> {
-            this.nbt = nbt;
-            loaded = false;
-        };
-
-        if (tasks == null || tasks.isDone()) {
-            tasks = CompletableFuture.runAsync(toRun);
-        } else {
-            tasks.thenRun(toRun);
-        }
-
-        tasks.join();
+        this.nbt = nbt;
+        this.cancelled = false;
 
         if (nbt == null) {
             loaded = true;
             return;
         }
 
-        tasks.thenRun(() -> {
+        loaded = false;
+
+        // each stage is queued on its own, so other avatars can interleave and a cleared avatar stops early
+        submitStage(this::loadMetadata, () ->
+                submitStage(() -> {
+                    // animations and models
+                    loadAnimations();
+                    renderer = Configs.BAKED_RENDERER.value ? new BakedAvatarRenderer(this) : new ImmediateAvatarRenderer(this);
+                }, () ->
+                        submitStage(this::loadCustomSounds, () ->
+                                submitStage(this::createLuaRuntime, () -> loaded = true))));
+    }
+
+    private void submitStage(Runnable stage, Runnable next) {
+        AvatarLoadQueue.submit(this, () -> {
             try {
-                // metadata
-                CompoundTag metadata = nbt.getCompound("metadata");
-                name = metadata.getString("name");
-                authors = metadata.getString("authors");
-                version = new Version(metadata.getString("ver"));
-                if (metadata.contains("id"))
-                    id = metadata.getString("id");
-                if (metadata.contains("color"))
-                    color = metadata.getString("color");
-                if (metadata.contains("minify"))
-                    minify = metadata.getBoolean("minify");
-                if (nbt.contains("resources")) {
-                    CompoundTag res = nbt.getCompound("resources");
-                    for (String k :
-                            res.getAllKeys()) {
-                        resources.put(k, res.getByteArray(k));
-                    }
-                }
-                for (String key : metadata.getAllKeys()) {
-                    if (key.contains("badge_color_")) {
-                        badgeToColor.put(key.replace("badge_color_", ""), metadata.getString(key));
-                    }
-                }
-                fileSize = getFileSize();
-                versionStatus = getVersionStatus();
-                if (entityName.isBlank())
-                    entityName = name;
-
-                // animations and models
-                loadAnimations();
-                renderer = new ImmediateAvatarRenderer(this);
-
-                // sounds and script
-                loadCustomSounds();
-                createLuaRuntime();
+                stage.run();
             } catch (Exception e) {
                 FiguraMod.LOGGER.error("", e);
-                clean();
-                this.nbt = null;
-                this.renderer = null;
-                this.luaRuntime = null;
+                abortLoad();
+                return;
             }
 
-            loaded = true;
-        });
+            if (cancelled) {
+                abortLoad();
+                return;
+            }
+
+            next.run();
+        }, this::abortLoad);
+    }
+
+    private void abortLoad() {
+        clean();
+        this.nbt = null;
+        this.renderer = null;
+        this.luaRuntime = null;
+        loaded = true;
+    }
+
+    private void loadMetadata() {
+        CompoundTag metadata = nbt.getCompound("metadata");
+        name = metadata.getString("name");
+        authors = metadata.getString("authors");
+        version = new Version(metadata.getString("ver"));
+        if (metadata.contains("id"))
+            id = metadata.getString("id");
+        if (metadata.contains("color"))
+            color = metadata.getString("color");
+        if (metadata.contains("minify"))
+            minify = metadata.getBoolean("minify");
+        if (nbt.contains("resources")) {
+            CompoundTag res = nbt.getCompound("resources");
+            for (String k :
+                    res.getAllKeys()) {
+                resources.put(k, res.getByteArray(k));
+            }
+        }
+        for (String key : metadata.getAllKeys()) {
+            if (key.contains("badge_color_")) {
+                badgeToColor.put(key.replace("badge_color_", ""), metadata.getString(key));
+            }
+        }
+        fileSize = getFileSize();
+        versionStatus = getVersionStatus();
+        if (entityName.isBlank())
+            entityName = name;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
     }
 
     public void tick() {
@@ -299,18 +313,26 @@ public class Avatar {
     }
 
     public void runPing(int id, byte[] data) {
+        runPing(id, ByteBuffer.wrap(data));
+    }
+
+    public void runPing(int id, ByteBuffer data) {
         events.offer(() -> {
             if (scriptError || luaRuntime == null || !loaded)
                 return;
 
-            LuaValue[] args = PingArg.fromByteArray(data, this);
             String name = luaRuntime.ping.getName(id);
             PingFunction function = luaRuntime.ping.get(name);
-            if (args == null || function == null)
+            if (function == null)
+                return;
+
+            int size = data.remaining();
+            Varargs args = PingArg.fromByteBuffer(data, this);
+            if (args == null)
                 return;
 
-            FiguraLuaPrinter.sendPingMessage(this, name, data.length, args);
-            luaRuntime.run(function.func, tick, (Object[]) args);
+            FiguraLuaPrinter.sendPingMessage(this, name, size, args);
+            luaRuntime.runWithArgs(function.func, tick, args);
         });
     }
 
@@ -318,6 +340,10 @@ public class Avatar {
         return scriptError || luaRuntime == null || !loaded ? null : luaRuntime.load(name, chunk);
     }
 
+    public LuaValue loadScript(Prototype prototype) {
+        return scriptError || luaRuntime == null || !loaded ? null : luaRuntime.load(prototype);
+    }
+
     private void flushQueuedEvents() {
         // run all queued events
         Runnable e;
@@ -950,6 +976,8 @@ public class Avatar {
      * also closes and stops this avatar sounds
      */
     public void clean() {
+        cancelled = true;
+
         if (renderer != null)
             renderer.invalidate();
 
@@ -964,8 +992,8 @@ public class Avatar {
     public void clearSounds() {
         SoundAPI.getSoundEngine().figura$stopSound(owner, null);
         if (SoundAPI.getSoundEngine().figura$isEngineActive()) {
-            for (SoundBuffer value : customSounds.values())
-                value.releaseAlBuffer();
+            for (CustomSound value : customSounds.values())
+                value.unload();
         }
     }
 
@@ -1124,10 +1152,8 @@ public class Avatar {
 
     public void loadSound(String name, byte[] data) throws Exception {
         if (SoundAPI.getSoundEngine().figura$isEngineActive()) {
-            try (ByteArrayInputStream inputStream = new ByteArrayInputStream(data); OggAudioStream oggAudioStream = new OggAudioStream(inputStream)) {
-                SoundBuffer sound = new SoundBuffer(oggAudioStream.readAll(), oggAudioStream.getFormat());
-                this.customSounds.put(name, sound);
-            }
+            // decoded only when played
+            this.customSounds.put(name, new CustomSound(this, name, data));
         } else {
             FiguraMod.LOGGER.error("Sound is not supported or enabled on this system but a custom sound tried to load anyway, scripts may break.");
         }
@@ -0,0 +1,154 @@
+package org.figuramc.figura.avatar;
+
+import org.figuramc.figura.FiguraMod;
+import org.figuramc.figura.utils.EntityUtils;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded worker pool for the avatar loading stages
+ * pending stages are picked by priority when a worker frees up, so the host and nearby avatars load first
+ * and a burst of far away avatars can no longer delay everything behind them
+ */
+public class AvatarLoadQueue {
+
+    private static final int WORKERS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+
+    private static final double HOST_PRIORITY = -1d;
+    // not looked up yet, behind everything known until the next tick
+    private static final double UNKNOWN_PRIORITY = Double.MAX_VALUE;
+    // avatars out of view are treated as this many times further away
+    private static final double OUT_OF_VIEW_FACTOR = 4d;
+    private static final int MAX_CACHED_PRIORITIES = 256;
+
+    private static final List<Stage> PENDING = new ArrayList<>();
+    // last priority computed on the main thread for each owner, used by stages submitted from other threads
+    private static final Map<UUID, Double> PRIORITIES = new HashMap<>();
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(WORKERS, new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "Figura Avatar Loader #" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private static long sequence;
+
+    /**
+     * Queues a loading stage of the given avatar
+     * stages of an avatar that got cleaned are skipped, and the avatar is handed to its cancel callback instead
+     * can be called from any thread, so it never reads the level, only the priority cached by the last update
+     */
+    public static void submit(Avatar avatar, Runnable stage, Runnable onCancel) {
+        synchronized (PENDING) {
+            double priority = avatar.isHost ? HOST_PRIORITY : PRIORITIES.getOrDefault(avatar.owner, UNKNOWN_PRIORITY);
+            PENDING.add(new Stage(avatar, stage, onCancel, sequence++, priority));
+        }
+        // one drain per stage, the worker picks whatever is the most urgent when it runs
+        EXECUTOR.execute(AvatarLoadQueue::runNext);
+    }
+
+    /**
+     * Recalculates the priority of the pending stages, based on the owner distance to the camera and if it is in view
+     * must be called from the main thread, since it looks up the entities from the level
+     */
+    public static void updatePriorities() {
+        Set<Avatar> avatars = new HashSet<>();
+        synchronized (PENDING) {
+            for (Stage stage : PENDING)
+                avatars.add(stage.avatar);
+        }
+        if (avatars.isEmpty())
+            return;
+
+        // the lookups run outside the lock, so workers are not held while the level is read
+        Map<UUID, Double> computed = new HashMap<>();
+        for (Avatar avatar : avatars)
+            computed.put(avatar.owner, priority(avatar));
+
+        synchronized (PENDING) {
+            if (PRIORITIES.size() + computed.size() > MAX_CACHED_PRIORITIES)
+                PRIORITIES.clear();
+            PRIORITIES.putAll(computed);
+            for (Stage stage : PENDING)
+                stage.priority = PRIORITIES.getOrDefault(stage.avatar.owner, stage.priority);
+        }
+    }
+
+    public static int getPendingCount() {
+        synchronized (PENDING) {
+            return PENDING.size();
+        }
+    }
+
+    private static void runNext() {
+        Stage next = null;
+        synchronized (PENDING) {
+            int index = -1;
+            for (int i = 0; i < PENDING.size(); i++) {
+                Stage stage = PENDING.get(i);
+                if (next == null || stage.compareTo(next) < 0) {
+                    next = stage;
+                    index = i;
+                }
+            }
+            if (index != -1)
+                PENDING.remove(index);
+        }
+
+        if (next == null)
+            return;
+
+        try {
+            if (next.avatar.isCancelled()) {
+                FiguraMod.debug("Cancelled avatar load of " + next.avatar.owner);
+                next.onCancel.run();
+            } else {
+                next.task.run();
+            }
+        } catch (Exception e) {
+            FiguraMod.LOGGER.error("", e);
+        }
+    }
+
+    // main thread only
+    private static double priority(Avatar avatar) {
+        if (avatar.isHost)
+            return HOST_PRIORITY;
+
+        double distance = EntityUtils.getCameraDistanceSqr(avatar.owner);
+        if (distance == Double.MAX_VALUE)
+            return UNKNOWN_PRIORITY;
+
+        // squared distances, so the factor is squared as well
+        return EntityUtils.isInCameraView(avatar.owner) ? distance : distance * OUT_OF_VIEW_FACTOR * OUT_OF_VIEW_FACTOR;
+    }
+
+    private static class Stage implements Comparable<Stage> {
+        private final Avatar avatar;
+        private final Runnable task, onCancel;
+        private final long order;
+        private double priority;
+
+        private Stage(Avatar avatar, Runnable task, Runnable onCancel, long order, double priority) {
+            this.avatar = avatar;
+            this.task = task;
+            this.onCancel = onCancel;
+            this.order = order;
+            this.priority = priority;
+        }
+
+        @Override
+        public int compareTo(Stage o) {
+            int i = Double.compare(priority, o.priority);
+            return i != 0 ? i : Long.compare(order, o.order);
+        }
+    }
+}
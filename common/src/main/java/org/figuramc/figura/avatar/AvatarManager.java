@@ -60,6 +60,9 @@ public class AvatarManager {
         if (panic)
             return;
 
+        // pending loads follow the camera
+        AvatarLoadQueue.updatePriorities();
+
         // tick the avatars
         for (UserData user : LOADED_USERS.values()) {
             Avatar avatar = user.getMainAvatar();
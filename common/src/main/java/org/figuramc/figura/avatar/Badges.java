@@ -136,7 +136,10 @@ public class Badges {
     }
 
     public static Component appendBadges(Component text, UUID id, boolean allow) {
-        Component badges = allow ? fetchBadges(id) : Component.empty();
+        return appendBadges(text, allow ? fetchBadges(id) : Component.empty());
+    }
+
+    public static Component appendBadges(Component text, Component badges) {
         boolean custom = hasCustomBadges(text);
 
         // no custom badges text
@@ -7,6 +7,7 @@ import net.minecraft.server.packs.resources.Resource;
 import org.figuramc.figura.FiguraMod;
 import org.figuramc.figura.avatar.AvatarManager;
 import org.figuramc.figura.avatar.UserData;
+import org.figuramc.figura.config.Configs;
 import org.figuramc.figura.gui.FiguraToast;
 import org.figuramc.figura.parsers.AvatarMetadataParser;
 import org.figuramc.figura.parsers.BlockbenchModelParser;
@@ -42,6 +43,12 @@ public class LocalAvatarLoader {
 
     private static WatchService watcher;
 
+    // parsed files of the last loaded avatars, so hot reloading only parses what changed
+    private static final LocalFileCache<Tag> SCRIPT_CACHE = new LocalFileCache<>();
+    private static final LocalFileCache<byte[]> SOUND_CACHE = new LocalFileCache<>();
+    private static final LocalFileCache<byte[]> RESOURCE_CACHE = new LocalFileCache<>();
+    private static final LocalFileCache<BlockbenchModelParser.ModelData> MODEL_CACHE = new LocalFileCache<>();
+
     public static final HashMap<ResourceLocation, CompoundTag> CEM_AVATARS = new HashMap<>();
     public static final FiguraResourceListener AVATAR_LISTENER = FiguraResourceListener.createResourceListener("cem", manager -> {
         CEM_AVATARS.clear();
@@ -86,7 +93,8 @@ public class LocalAvatarLoader {
         if (tasks == null || tasks.isDone()) {
             tasks = CompletableFuture.runAsync(toRun);
         } else {
-            tasks.thenRun(toRun);
+            // keep the chain going even if a previous task failed
+            tasks = tasks.exceptionally(e -> null).thenRun(toRun);
         }
     }
 
@@ -158,6 +166,12 @@ public class LocalAvatarLoader {
                     metadataTag.remove("resource_paths");
                 }
 
+                // forget about files that are gone
+                SCRIPT_CACHE.sweep();
+                SOUND_CACHE.sweep();
+                RESOURCE_CACHE.sweep();
+                MODEL_CACHE.sweep();
+
                 // load
                 target.loadAvatar(nbt);
             } catch (Throwable e) {
@@ -178,20 +192,24 @@ public class LocalAvatarLoader {
         CompoundTag resourcesTag = new CompoundTag();
         for (String p:
                 pathMap.keySet()) {
-            try (FileInputStream fis = new FileInputStream(pathMap.get(p).toFile())) {
-                ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                GZIPOutputStream gos = new GZIPOutputStream(baos);
-                int i;
-                while ((i = fis.read()) != -1) {
-                    gos.write(i);
+            Path file = pathMap.get(p);
+            byte[] compressed = RESOURCE_CACHE.get(file, p);
+            if (compressed == null) {
+                LocalFileCache.Stamp stamp = LocalFileCache.stamp(file);
+                try (FileInputStream fis = new FileInputStream(file.toFile())) {
+                    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                    GZIPOutputStream gos = new GZIPOutputStream(baos);
+                    fis.transferTo(gos);
+                    gos.close();
+                    compressed = baos.toByteArray();
+                    RESOURCE_CACHE.put(file, stamp, p, compressed);
+                    baos.close();
+                }
+                catch (IOException e) {
+                    throw new RuntimeException(e);
                 }
-                gos.close();
-                resourcesTag.put(unixifyPath(p), new ByteArrayTag(baos.toByteArray()));
-                baos.close();
-            }
-            catch (IOException e) {
-                throw new RuntimeException(e);
             }
+            resourcesTag.put(unixifyPath(p), new ByteArrayTag(compressed));
         }
         nbt.put("resources", resourcesTag);
     }
@@ -235,7 +253,16 @@ public class LocalAvatarLoader {
                         .replaceFirst(pathRegex, "")
                         .replaceAll("[/\\\\]", ".");
                 name = name.substring(0, name.length() - 4);
-                scriptsNbt.put(name, LuaScriptParser.parseScript(name, IOUtils.readFile(script)));
+
+                // the minified output depends on the script name and on the minifier
+                List<Object> key = List.of(name, Configs.FORMAT_SCRIPT.value);
+                Tag parsed = SCRIPT_CACHE.get(script, key);
+                if (parsed == null) {
+                    LocalFileCache.Stamp stamp = LocalFileCache.stamp(script);
+                    parsed = LuaScriptParser.parseScript(name, IOUtils.readFile(script));
+                    SCRIPT_CACHE.put(script, stamp, key, parsed);
+                }
+                scriptsNbt.put(name, parsed.copy());
             }
             nbt.put("scripts", scriptsNbt);
         }
@@ -251,7 +278,14 @@ public class LocalAvatarLoader {
                         .replaceFirst(pathRegex, "")
                         .replaceAll("[/\\\\]", ".");
                 name = name.substring(0, name.length() - 4);
-                soundsNbt.putByteArray(name, IOUtils.readFileBytes(sound));
+
+                byte[] bytes = SOUND_CACHE.get(sound, name);
+                if (bytes == null) {
+                    LocalFileCache.Stamp stamp = LocalFileCache.stamp(sound);
+                    bytes = IOUtils.readFileBytes(sound);
+                    SOUND_CACHE.put(sound, stamp, name, bytes);
+                }
+                soundsNbt.putByteArray(name, bytes);
             }
             nbt.put("sounds", soundsNbt);
         }
@@ -274,7 +308,20 @@ public class LocalAvatarLoader {
                         children.add(subfolder);
                     }
                 } else if (file.toString().toLowerCase(Locale.US).endsWith(".bbmodel")) {
-                    BlockbenchModelParser.ModelData data = parser.parseModel(avatarFolder, file, IOUtils.readFile(file), name.substring(0, name.length() - 8), folders);
+                    // texture and animation ids are offset by the models parsed before this one
+                    // and the cube and mesh layout depends on the packed model format config
+                    String modelName = name.substring(0, name.length() - 8);
+                    List<Object> key = List.of(avatarFolder, folders, modelName, parser.getTextureOffset(), parser.getAnimationOffset(), parser.isPacked());
+
+                    BlockbenchModelParser.ModelData data = MODEL_CACHE.get(file, key);
+                    if (data == null) {
+                        LocalFileCache.Stamp stamp = LocalFileCache.stamp(file);
+                        data = parser.parseModel(avatarFolder, file, IOUtils.readFile(file), modelName, folders);
+                        MODEL_CACHE.put(file, stamp, key, copyModelData(data), parser.getReadFiles());
+                    } else {
+                        parser.skipModel(data.textures().getList("data", Tag.TAG_COMPOUND).size(), data.animationList().size());
+                        data = copyModelData(data);
+                    }
                     children.add(data.modelNbt());
                     animations.addAll(data.animationList());
 
@@ -298,6 +345,21 @@ public class LocalAvatarLoader {
         return result;
     }
 
+    // the model data gets merged into the avatar nbt, which is later modified by the metadata
+    private static BlockbenchModelParser.ModelData copyModelData(BlockbenchModelParser.ModelData data) {
+        List<CompoundTag> animations = new ArrayList<>(data.animationList().size());
+        for (CompoundTag animation : data.animationList())
+            animations.add(animation.copy());
+        return new BlockbenchModelParser.ModelData(data.textures().copy(), animations, data.modelNbt().copy());
+    }
+
+    public static void clearCache() {
+        SCRIPT_CACHE.clear();
+        SOUND_CACHE.clear();
+        RESOURCE_CACHE.clear();
+        MODEL_CACHE.clear();
+    }
+
     /**
      * Tick the watched key for hotswapping avatars
      */
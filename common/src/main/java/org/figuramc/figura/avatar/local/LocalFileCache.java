@@ -0,0 +1,80 @@
+package org.figuramc.figura.avatar.local;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Keeps the parsed result of the local avatar files between reloads
+ * an entry is valid while its file, and the files it depends on, keep the same modified time and size
+ * and while the extra key (the parser state the result depends on) matches
+ * stamps are taken before a file is read, so a file read while it is still being saved is not cached as the saved one
+ */
+public class LocalFileCache<T> {
+
+    private final Map<Path, Entry<T>> entries = new HashMap<>();
+    private final Set<Path> used = new HashSet<>();
+
+    public synchronized T get(Path file, Object key) {
+        Entry<T> entry = entries.get(file);
+        if (entry == null || !entry.key.equals(key))
+            return null;
+
+        for (int i = 0; i < entry.files.size(); i++) {
+            if (!entry.stamps.get(i).equals(Stamp.of(entry.files.get(i))))
+                return null;
+        }
+
+        used.add(file);
+        return entry.value;
+    }
+
+    // the stamp of the file as it is now, take it before reading the file
+    public static Stamp stamp(Path path) {
+        return Stamp.of(path);
+    }
+
+    public synchronized void put(Path file, Stamp stamp, Object key, T value) {
+        put(file, stamp, key, value, Map.of());
+    }
+
+    public synchronized void put(Path file, Stamp stamp, Object key, T value, Map<Path, Stamp> dependencies) {
+        List<Path> files = new ArrayList<>(dependencies.size() + 1);
+        List<Stamp> stamps = new ArrayList<>(dependencies.size() + 1);
+        files.add(file);
+        stamps.add(stamp);
+        for (Map.Entry<Path, Stamp> dependency : dependencies.entrySet()) {
+            files.add(dependency.getKey());
+            stamps.add(dependency.getValue());
+        }
+
+        entries.put(file, new Entry<>(key, value, files, stamps));
+        used.add(file);
+    }
+
+    // drops everything that was not requested since the last sweep, like deleted files or another avatar
+    public synchronized void sweep() {
+        entries.keySet().retainAll(used);
+        used.clear();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        used.clear();
+    }
+
+    private record Entry<T>(Object key, T value, List<Path> files, List<Stamp> stamps) {}
+
+    public record Stamp(long modified, long size) {
+        private static final Stamp MISSING = new Stamp(-1, -1);
+
+        private static Stamp of(Path path) {
+            try {
+                return new Stamp(Files.getLastModifiedTime(path).toMillis(), Files.size(path));
+            } catch (IOException ignored) {
+                return MISSING;
+            }
+        }
+    }
+}
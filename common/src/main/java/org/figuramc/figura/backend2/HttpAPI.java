@@ -4,12 +4,15 @@ import net.minecraft.client.multiplayer.resolver.ServerAddress;
 import org.figuramc.figura.FiguraMod;
 import org.figuramc.figura.config.Configs;
 
+import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.function.BiConsumer;
 
 public class HttpAPI {
@@ -67,17 +70,30 @@ public class HttpAPI {
         }
     }
 
-    protected static void runStream(HttpRequest request, BiConsumer<Integer, InputStream> consumer) {
-        try {
-            requestDebug(request);
-            HttpResponse<InputStream> response = NetworkStuff.client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+    protected static CompletableFuture<Void> sendString(HttpRequest request, BiConsumer<Integer, String> consumer) {
+        requestDebug(request);
+        return NetworkStuff.client.sendAsync(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8)).thenAccept(response -> {
             int code = response.statusCode();
             if (code == 401) NetworkStuff.reAuth();
             consumer.accept(code, response.body());
-        } catch (Exception e) {
-            if (!e.getMessage().contains("GOAWAY received"))
-                FiguraMod.LOGGER.error("", e);
-        }
+        }).exceptionally(HttpAPI::logError);
+    }
+
+    protected static CompletableFuture<Void> sendStream(HttpRequest request, BiConsumer<Integer, InputStream> consumer) {
+        requestDebug(request);
+        // the body is buffered so the client threads are never blocked on a half read stream
+        return NetworkStuff.client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray()).thenAccept(response -> {
+            int code = response.statusCode();
+            if (code == 401) NetworkStuff.reAuth();
+            consumer.accept(code, new ByteArrayInputStream(response.body()));
+        }).exceptionally(HttpAPI::logError);
+    }
+
+    private static Void logError(Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        if (cause.getMessage() == null || !cause.getMessage().contains("GOAWAY received"))
+            FiguraMod.LOGGER.error("", cause);
+        return null;
     }
 
 
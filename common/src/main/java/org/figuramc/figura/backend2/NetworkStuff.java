@@ -23,6 +23,7 @@ import org.figuramc.figura.font.Emojis;
 import org.figuramc.figura.gui.FiguraToast;
 import org.figuramc.figura.permissions.PermissionManager;
 import org.figuramc.figura.permissions.Permissions;
+import org.figuramc.figura.utils.EntityUtils;
 import org.figuramc.figura.utils.FiguraText;
 import org.figuramc.figura.utils.RefilledNumber;
 import org.figuramc.figura.utils.TextUtils;
@@ -38,12 +39,10 @@ import java.nio.ByteBuffer;
 import java.security.KeyManagementException;
 import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
-import java.util.ArrayList;
-import java.util.BitSet;
-import java.util.List;
-import java.util.UUID;
+import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -53,12 +52,19 @@ public class NetworkStuff {
     protected static final HttpClient client = HttpClient.newHttpClient();
     protected static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
 
-    private static final ConcurrentLinkedQueue<Request<HttpAPI>> API_REQUESTS = new ConcurrentLinkedQueue<>();
+    private static final List<ApiRequest> API_REQUESTS = new ArrayList<>();
+    // the latest request of each key, queued or in flight, guarded by API_REQUESTS
+    private static final Map<String, ApiRequest> ACTIVE_REQUESTS = new HashMap<>();
+    // owners with a state changing request in flight, guarded by API_REQUESTS
+    private static final Set<UUID> SERIAL_OWNERS = new HashSet<>();
+    private static final AtomicInteger IN_FLIGHT = new AtomicInteger();
     private static final ConcurrentLinkedQueue<Request<WebSocket>> WS_REQUESTS = new ConcurrentLinkedQueue<>();
     private static final List<UUID> SUBSCRIPTIONS = new ArrayList<>();
+    private static final List<Pair<Integer, byte[]>> PENDING_PINGS = new ArrayList<>();
     private static CompletableFuture<Void> tasks;
 
     private static final int RECONNECT = 6000; //5 min
+    private static final int MAX_PING_BATCH_SIZE = 1024;
     private static int authCheck = RECONNECT;
 
     protected static HttpAPI api;
@@ -80,6 +86,8 @@ public class NetworkStuff {
             uploadRate = new RefilledNumber(),
             downloadRate = new RefilledNumber();
     private static int maxAvatarSize = Integer.MAX_VALUE;
+    private static boolean hasLimits;
+    private static long requestCount;
 
     public static void tick() {
         //limits
@@ -101,6 +109,9 @@ public class NetworkStuff {
 
         tickSubscriptions();
 
+        //send the pings of this tick
+        flushPings();
+
         //process requests
         if (isConnected())
             processRequests();
@@ -133,14 +144,37 @@ public class NetworkStuff {
     }
 
     private static void processRequests() {
-        if (!API_REQUESTS.isEmpty()) {
-            Request<HttpAPI> request;
-            while ((request = API_REQUESTS.poll()) != null) {
-                Request<HttpAPI> finalRequest = request;
-                async(() -> finalRequest.consumer.accept(api));
+        List<ApiRequest> toSend = new ArrayList<>();
+        synchronized (API_REQUESTS) {
+            if (!API_REQUESTS.isEmpty()) {
+                // closest players first
+                for (ApiRequest request : API_REQUESTS)
+                    request.priority = getPriority(request.owner);
+                API_REQUESTS.sort(null);
+
+                int limit = Math.max(1, Configs.MAX_CONCURRENT_REQUESTS.value);
+                Iterator<ApiRequest> iterator = API_REQUESTS.iterator();
+                while (IN_FLIGHT.get() < limit && iterator.hasNext()) {
+                    ApiRequest request = iterator.next();
+                    // state changing requests of the same owner go one at a time, in the order they were queued
+                    if (request.serial && !SERIAL_OWNERS.add(request.owner))
+                        continue;
+                    // downloads wait for the server rate to refill
+                    if (request.download && hasLimits && !downloadRate.use())
+                        continue;
+
+                    iterator.remove();
+                    request.dispatched = true;
+                    IN_FLIGHT.incrementAndGet();
+                    toSend.add(request);
+                }
             }
         }
 
+        // sent outside the lock, as completion callbacks may queue new requests
+        for (ApiRequest request : toSend)
+            dispatch(request);
+
         if (!WS_REQUESTS.isEmpty()) {
             Request<WebSocket> request;
             while ((request = WS_REQUESTS.poll()) != null) {
@@ -154,10 +188,43 @@ public class NetworkStuff {
         if (tasks == null || tasks.isDone()) {
             tasks = CompletableFuture.runAsync(toRun);
         } else {
-            tasks.thenRun(toRun);
+            // keep the chain going even if a previous task failed
+            tasks = tasks.exceptionally(e -> null).thenRun(toRun);
         }
     }
 
+    private static void dispatch(ApiRequest request) {
+        CompletableFuture<Void> future;
+        try {
+            future = request.sender.apply(api);
+        } catch (Exception e) {
+            FiguraMod.LOGGER.error("", e);
+            future = CompletableFuture.completedFuture(null);
+        }
+
+        future.whenComplete((v, e) -> {
+            IN_FLIGHT.decrementAndGet();
+            synchronized (API_REQUESTS) {
+                if (request.serial)
+                    SERIAL_OWNERS.remove(request.owner);
+                if (request.key != null && ACTIVE_REQUESTS.get(request.key) == request) {
+                    ACTIVE_REQUESTS.remove(request.key);
+                    // asked again while this one was in flight, its answer may be outdated, so fetch again
+                    if (request.followUp != null)
+                        queue(request.followUp);
+                }
+            }
+        });
+    }
+
+    private static double getPriority(UUID owner) {
+        if (owner.equals(Util.NIL_UUID))
+            return -2d;
+        if (FiguraMod.isLocal(owner))
+            return -1d;
+        return EntityUtils.getCameraDistanceSqr(owner);
+    }
+
     private static boolean checkUUID(UUID id) {
         if (id.version() != 4) {
             FiguraMod.debug("Voiding request for non v4 UUID \"" + id + "\" (v" + id.version() + ")");
@@ -225,15 +292,64 @@ public class NetworkStuff {
 
 
     private static void queueString(UUID owner, Function<HttpAPI, HttpRequest> request, BiConsumer<Integer, String> consumer) {
-        API_REQUESTS.add(new Request<>(owner, api -> HttpAPI.runString(request.apply(api), consumer)));
+        queueString(owner, null, request, consumer);
+    }
+
+    private static void queueString(UUID owner, String key, Function<HttpAPI, HttpRequest> request, BiConsumer<Integer, String> consumer) {
+        queue(new ApiRequest(owner, key, false, api -> HttpAPI.sendString(request.apply(api), consumer)));
     }
 
-    private static void queueStream(UUID owner, Function<HttpAPI, HttpRequest> request, BiConsumer<Integer, InputStream> consumer) {
-        API_REQUESTS.add(new Request<>(owner, api -> HttpAPI.runStream(request.apply(api), consumer)));
+    // requests that change the backend state, never sent at the same time as another one of the same owner
+    private static void queueSerialString(UUID owner, Function<HttpAPI, HttpRequest> request, BiConsumer<Integer, String> consumer) {
+        ApiRequest apiRequest = new ApiRequest(owner, null, false, api -> HttpAPI.sendString(request.apply(api), consumer));
+        apiRequest.serial = true;
+        queue(apiRequest);
+    }
+
+    private static void queueStream(UUID owner, String key, Function<HttpAPI, HttpRequest> request, BiConsumer<Integer, InputStream> consumer) {
+        queue(new ApiRequest(owner, key, true, api -> HttpAPI.sendStream(request.apply(api), consumer)));
+    }
+
+    private static void queue(ApiRequest request) {
+        synchronized (API_REQUESTS) {
+            // the same user or avatar is only requested once at a time, with the latest callback
+            ApiRequest active = request.key != null ? ACTIVE_REQUESTS.get(request.key) : null;
+            if (active != null) {
+                if (active.dispatched) {
+                    // sent already, so this one runs after it completes
+                    if (debug) FiguraMod.debug("Delaying duplicated request \"" + request.key + "\"");
+                    active.followUp = request;
+                    return;
+                }
+
+                // still waiting, the newer request takes its place in the queue
+                if (debug) FiguraMod.debug("Replacing duplicated request \"" + request.key + "\"");
+                API_REQUESTS.remove(active);
+                request.order = active.order;
+            } else {
+                request.order = requestCount++;
+            }
+
+            if (request.key != null)
+                ACTIVE_REQUESTS.put(request.key, request);
+            API_REQUESTS.add(request);
+        }
     }
 
     public static void clear(UUID requestOwner) {
-        API_REQUESTS.removeIf(request -> request.owner.equals(requestOwner));
+        synchronized (API_REQUESTS) {
+            API_REQUESTS.removeIf(request -> {
+                if (!request.owner.equals(requestOwner))
+                    return false;
+                if (request.key != null && ACTIVE_REQUESTS.get(request.key) == request)
+                    ACTIVE_REQUESTS.remove(request.key);
+                return true;
+            });
+            // nothing is fetched again for cleared owners
+            for (ApiRequest request : ACTIVE_REQUESTS.values())
+                if (request.owner.equals(requestOwner))
+                    request.followUp = null;
+        }
     }
 
     private static void responseDebug(String src, int code, String data) {
@@ -289,6 +405,7 @@ public class NetworkStuff {
 
             JsonObject limits = json.getAsJsonObject("limits");
             maxAvatarSize = limits.get("maxAvatarSize").getAsInt();
+            hasLimits = true;
         });
     }
 
@@ -296,7 +413,7 @@ public class NetworkStuff {
         if (checkUUID(user.id))
             return;
 
-        queueString(user.id, api -> api.getUser(user.id), (code, data) -> {
+        queueString(user.id, "user/" + user.id, api -> api.getUser(user.id), (code, data) -> {
             //debug
             responseDebug("getUser", code, data);
 
@@ -348,7 +465,7 @@ public class NetworkStuff {
         try {
             ByteArrayOutputStream baos = new ByteArrayOutputStream();
             NbtIo.writeCompressed(avatar.nbt, baos);
-            queueString(Util.NIL_UUID, api -> api.uploadAvatar(id, baos.toByteArray()), (code, data) -> {
+            queueSerialString(Util.NIL_UUID, api -> api.uploadAvatar(id, baos.toByteArray()), (code, data) -> {
                 responseDebug("uploadAvatar", code, data);
 
                 if (code == 200) {
@@ -374,7 +491,7 @@ public class NetworkStuff {
 
     public static void deleteAvatar(String avatar) {
         String id = avatar == null || true ? "avatar" : avatar; //TODO - profile screen
-        queueString(Util.NIL_UUID, api -> api.deleteAvatar(id), (code, data) -> {
+        queueSerialString(Util.NIL_UUID, api -> api.deleteAvatar(id), (code, data) -> {
             responseDebug("deleteAvatar", code, data);
 
             switch (code) {
@@ -395,7 +512,7 @@ public class NetworkStuff {
             json.add(obj);
         }
 
-        queueString(Util.NIL_UUID, api -> api.setEquipped(GSON.toJson(json)), (code, data) -> {
+        queueSerialString(Util.NIL_UUID, api -> api.setEquipped(GSON.toJson(json)), (code, data) -> {
             responseDebug("equipAvatar", code, data);
             if (code != 200 && Configs.CONNECTION_TOASTS.value)
                 FiguraToast.sendToast(FiguraText.of("backend.equip_error"), FiguraToast.ToastType.ERROR);
@@ -406,7 +523,7 @@ public class NetworkStuff {
         if (checkUUID(target.id))
             return;
 
-        queueStream(target.id, api -> api.getAvatar(owner, id), (code, stream) -> {
+        queueStream(target.id, "avatar/" + target.id + "/" + hash, api -> api.getAvatar(owner, id), (code, stream) -> {
             String s;
             try {
                 s = code == 200 ? "<avatar data>" : new String(stream.readAllBytes());
@@ -428,7 +545,6 @@ public class NetworkStuff {
                 FiguraMod.LOGGER.error("Failed to load avatar for " + target.id, e);
             }
         });
-        downloadRate.use();
     }
 
 
@@ -458,6 +574,83 @@ public class NetworkStuff {
         if (!AvatarManager.localUploaded || !isConnected())
             return;
 
+        int batching = Configs.PING_BATCHING.value;
+        if (batching == 0 || Configs.SYNC_PINGS.value != sync) {
+            //send what is already waiting first, so pings keep their order
+            flushPings();
+            sendPingFrame(id, sync, data);
+            return;
+        }
+
+        //coalesce, only the latest call of a ping is sent
+        if (batching == 2) {
+            for (int i = 0; i < PENDING_PINGS.size(); i++) {
+                if (PENDING_PINGS.get(i).getFirst() == id) {
+                    PENDING_PINGS.set(i, Pair.of(id, data));
+                    return;
+                }
+            }
+        }
+
+        PENDING_PINGS.add(Pair.of(id, data));
+    }
+
+    private static void flushPings() {
+        if (PENDING_PINGS.isEmpty())
+            return;
+
+        boolean sync = Configs.SYNC_PINGS.value;
+        if (!AvatarManager.localUploaded || !isConnected()) {
+            PENDING_PINGS.clear();
+            return;
+        }
+
+        //pack as many pings as possible on each frame, counting every header in the frame
+        int emptySize = C2SMessageHandler.PING_HEADER + C2SMessageHandler.PING_BATCH_HEADER;
+        List<Pair<Integer, byte[]>> batch = new ArrayList<>();
+        int size = emptySize;
+        for (Pair<Integer, byte[]> ping : PENDING_PINGS) {
+            int pingSize = ping.getSecond().length + C2SMessageHandler.PING_BATCH_ENTRY_HEADER;
+
+            //too big to share a frame, or for the length field, so it goes alone, after what came before it
+            if (emptySize + pingSize > MAX_PING_BATCH_SIZE || ping.getSecond().length > 0xFFFF) {
+                sendPingBatch(sync, batch);
+                batch.clear();
+                size = emptySize;
+                sendPingFrame(ping.getFirst(), sync, ping.getSecond());
+                continue;
+            }
+
+            if (size + pingSize > MAX_PING_BATCH_SIZE) {
+                sendPingBatch(sync, batch);
+                batch.clear();
+                size = emptySize;
+            }
+            batch.add(ping);
+            size += pingSize;
+        }
+        sendPingBatch(sync, batch);
+        PENDING_PINGS.clear();
+    }
+
+    private static void sendPingBatch(boolean sync, List<Pair<Integer, byte[]>> batch) {
+        if (batch.isEmpty())
+            return;
+
+        //a single ping is sent as is
+        if (batch.size() == 1) {
+            sendPingFrame(batch.get(0).getFirst(), sync, batch.get(0).getSecond());
+            return;
+        }
+
+        try {
+            sendPingFrame(C2SMessageHandler.PING_BATCH, sync, C2SMessageHandler.pingBatch(batch));
+        } catch (Exception e) {
+            FiguraMod.LOGGER.error("Failed to send ping", e);
+        }
+    }
+
+    private static void sendPingFrame(int id, boolean sync, byte[] data) {
         try {
             ByteBuffer buffer = C2SMessageHandler.ping(id, sync, data);
             ws.sendBinary(buffer.array());
@@ -547,6 +740,31 @@ public class NetworkStuff {
     // -- request subclass -- //
 
 
+    private static class ApiRequest implements Comparable<ApiRequest> {
+        private final UUID owner;
+        private final String key;
+        private final boolean download;
+        private final Function<HttpAPI, CompletableFuture<Void>> sender;
+        private boolean serial, dispatched;
+        private ApiRequest followUp;
+        private long order;
+        private double priority;
+
+        private ApiRequest(UUID owner, String key, boolean download, Function<HttpAPI, CompletableFuture<Void>> sender) {
+            this.owner = owner;
+            this.key = key;
+            this.download = download;
+            this.sender = sender;
+        }
+
+        @Override
+        public int compareTo(ApiRequest o) {
+            int i = Double.compare(priority, o.priority);
+            return i != 0 ? i : Long.compare(order, o.order);
+        }
+    }
+
+
     private record Request<T>(UUID owner, Consumer<T> consumer) {
         @Override
         public boolean equals(Object o) {
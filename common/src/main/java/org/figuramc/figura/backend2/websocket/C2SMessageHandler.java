@@ -1,10 +1,13 @@
 package org.figuramc.figura.backend2.websocket;
 
+import com.mojang.datafixers.util.Pair;
+
 import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.UUID;
 
 public class C2SMessageHandler {
@@ -16,6 +19,16 @@ public class C2SMessageHandler {
             SUB = 2, // owo
             UNSUB = 3;
 
+    // ping id carrying several pings at once, older clients have no ping with it and just ignore it
+    // ping ids are (hash + 1) * 31, which wraps around and can give any int, so new clients refuse to register a ping with this id
+    // and the batch also starts with a marker, in case an older client sends a ping that ended up with it
+    public static final int PING_BATCH = 0;
+    public static final int PING_BATCH_MARKER = 0x46504242; // FPBB
+    // marker, then int id and unsigned short length for each ping
+    public static final int PING_BATCH_HEADER = 4, PING_BATCH_ENTRY_HEADER = 6;
+    // the ping message header, byte type, int id and boolean sync
+    public static final int PING_HEADER = 6;
+
     public static ByteBuffer auth(String token) throws IOException {
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
         DataOutputStream dos = new DataOutputStream(baos);
@@ -40,6 +53,22 @@ public class C2SMessageHandler {
         return ByteBuffer.wrap(baos.toByteArray());
     }
 
+    public static byte[] pingBatch(List<Pair<Integer, byte[]>> pings) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        DataOutputStream dos = new DataOutputStream(baos);
+
+        dos.writeInt(PING_BATCH_MARKER);
+        for (Pair<Integer, byte[]> ping : pings) {
+            byte[] data = ping.getSecond();
+            dos.writeInt(ping.getFirst());
+            dos.writeShort(data.length);
+            dos.write(data);
+        }
+        dos.close();
+
+        return baos.toByteArray();
+    }
+
     public static ByteBuffer sub(UUID id) throws IOException {
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
         DataOutputStream dos = new DataOutputStream(baos);
@@ -61,9 +61,24 @@ public class S2CMessageHandler {
         int id = bytes.getInt();
         bytes.get(); // sync value is ignored
 
-        byte[] data = new byte[bytes.remaining()];
-        bytes.get(data);
+        if (id == C2SMessageHandler.PING_BATCH && bytes.remaining() >= C2SMessageHandler.PING_BATCH_HEADER && bytes.getInt(bytes.position()) == C2SMessageHandler.PING_BATCH_MARKER) {
+            bytes.getInt();
+            // int id, unsigned short length and the data, for each ping
+            while (bytes.remaining() >= C2SMessageHandler.PING_BATCH_ENTRY_HEADER) {
+                int pingId = bytes.getInt();
+                int length = Math.min(bytes.getShort() & 0xFFFF, bytes.remaining());
+                ByteBuffer data = bytes.slice(bytes.position(), length);
+                bytes.position(bytes.position() + length);
+                runPing(avatar, pingId, data);
+            }
+            return;
+        }
+
+        // the message array is not reused, so the ping is read straight from it
+        runPing(avatar, id, bytes.slice());
+    }
 
+    private static void runPing(Avatar avatar, int id, ByteBuffer data) {
         avatar.runPing(id, data);
         NetworkStuff.pingsReceived++;
         if (NetworkStuff.lastPing == 0) NetworkStuff.lastPing = FiguraMod.ticks;
@@ -7,11 +7,13 @@ import org.figuramc.figura.FiguraMod;
 import org.figuramc.figura.avatar.AvatarManager;
 import org.figuramc.figura.avatar.local.CacheAvatarLoader;
 import org.figuramc.figura.avatar.local.LocalAvatarFetcher;
+import org.figuramc.figura.avatar.local.LocalAvatarLoader;
 import org.figuramc.figura.backend2.NetworkStuff;
 import org.figuramc.figura.entries.EntryPointManager;
 import org.figuramc.figura.gui.FiguraToast;
 import org.figuramc.figura.gui.screens.ConfigScreen;
 import org.figuramc.figura.lua.FiguraLuaPrinter;
+import org.figuramc.figura.lua.LuaScriptCache;
 import org.figuramc.figura.lua.api.ConfigAPI;
 import org.figuramc.figura.permissions.PermissionManager;
 import org.figuramc.figura.permissions.Permissions;
@@ -141,7 +143,8 @@ public class Configs {
     public static final ConfigType.BoolConfig
             ALLOW_FP_HANDS = new ConfigType.BoolConfig("allow_fp_hands", RENDERING, false),
             FIRST_PERSON_MATRICES = new ConfigType.BoolConfig("first_person_matrices", RENDERING, true),
-            INVENTORY_SCISSOR = new ConfigType.BoolConfig("inventory_scissor", RENDERING, true);
+            INVENTORY_SCISSOR = new ConfigType.BoolConfig("inventory_scissor", RENDERING, true),
+            BAKED_RENDERER = new ConfigType.BoolConfig("baked_renderer", RENDERING, false);
 
 
     // -- ACTION WHEEL -- // 
@@ -246,8 +249,12 @@ public class Configs {
     public static final ConfigType.BoolConfig
             CONNECTION_TOASTS = new ConfigType.BoolConfig("connection_toasts", DEV, true),
             LOG_OTHERS = new ConfigType.BoolConfig("log_others", DEV, false);
+    public static final ConfigType.PositiveIntConfig
+            MAX_CONCURRENT_REQUESTS = new ConfigType.PositiveIntConfig("max_concurrent_requests", DEV, 6);
     public static final ConfigType.EnumConfig
-            LOG_PINGS = new ConfigType.EnumConfig("log_pings", DEV, 0, 3);
+            LOG_PINGS = new ConfigType.EnumConfig("log_pings", DEV, 0, 3),
+            PING_BATCHING = new ConfigType.EnumConfig("ping_batching", DEV, 0, 3),
+            PING_ENCODING = new ConfigType.EnumConfig("ping_encoding", DEV, 0, 3);
     public static final ConfigType.BoolConfig
             SYNC_PINGS = new ConfigType.BoolConfig("sync_pings", DEV, false) {{
         String tooltip = "config.sync_pings.tooltip.";
@@ -287,8 +294,10 @@ public class Configs {
             CLEAR_CACHE = new ConfigType.ButtonConfig("clear_cache", DEV, () -> {
         CacheAvatarLoader.clearCache();
         LocalAvatarFetcher.clearCache();
+        LocalAvatarLoader.clearCache();
         ConfigScreen.clearCache();
         FiguraRuntimeResources.clearCache();
+        LuaScriptCache.clearCache();
         FiguraToast.sendToast(FiguraText.of("toast.cache_clear"));
     }),
             REDOWNLOAD_ASSETS = new ConfigType.ButtonConfig("redownload_assets", DEV, () -> {
@@ -301,7 +310,11 @@ public class Configs {
             });
     public static final ConfigType.BoolConfig
             FORCE_SMOOTH_AVATAR = new ConfigType.BoolConfig("force_smooth_avatar", DEV, false),
+            ANGLE_WEIGHTED_NORMALS = new ConfigType.BoolConfig("angle_weighted_normals", DEV, false),
+            PACKED_MODEL_FORMAT = new ConfigType.BoolConfig("packed_model_format", DEV, false),
             GUI_FPS = new ConfigType.BoolConfig("gui_fps", DEV, false);
+    public static final ConfigType.PositiveFloatConfig
+            SMOOTH_WELD_EPSILON = new ConfigType.PositiveFloatConfig("smooth_weld_epsilon", DEV, 1e-4f);
 
     // -- NETWORKING -- //
     public static final ConfigType.BoolConfig ALLOW_NETWORKING =
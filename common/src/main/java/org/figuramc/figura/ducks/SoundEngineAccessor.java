@@ -7,15 +7,17 @@ import net.minecraft.sounds.SoundSource;
 import org.figuramc.figura.lua.api.sound.LuaSound;
 
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 public interface SoundEngineAccessor {
 
     void figura$addSound(LuaSound sound);
     void figura$stopSound(UUID owner, String name);
     void figura$stopAllSounds();
-    ChannelAccess.ChannelHandle figura$createHandle(UUID owner, String name, Library.Pool pool);
+    CompletableFuture<ChannelAccess.ChannelHandle> figura$createHandle(UUID owner, String name, Library.Pool pool);
     float figura$getVolume(SoundSource category);
     SoundBufferLibrary figura$getSoundBuffers();
     boolean figura$isPlaying(UUID owner);
+    boolean figura$isUsingSound(UUID owner, String name);
     boolean figura$isEngineActive();
 }
@@ -122,7 +122,7 @@ public class FiguraLuaPrinter {
     }
 
     // print an ping!
-    public static void sendPingMessage(Avatar owner, String ping, int size, LuaValue[] args) {
+    public static void sendPingMessage(Avatar owner, String ping, int size, Varargs args) {
         int config = Configs.LOG_PINGS.value;
 
         // no ping? *megamind.png*
@@ -138,8 +138,8 @@ public class FiguraLuaPrinter {
                 .append(size + " bytes")
                 .append(Component.literal(" :: ").withStyle(ColorUtils.Colors.LUA_PING.style));
 
-        for (LuaValue arg : args)
-            text.append(getPrintText(owner.luaRuntime.typeManager, arg, true, false)).append("\t");
+        for (int i = 1; i <= args.narg(); i++)
+            text.append(getPrintText(owner.luaRuntime.typeManager, args.arg(i), true, false)).append("\t");
 
         text.append(Component.literal("\n"));
 
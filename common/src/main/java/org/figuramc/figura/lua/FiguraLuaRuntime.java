@@ -128,13 +128,17 @@ public class FiguraLuaRuntime {
         // actual sandbox file
         try (InputStream inputStream = FiguraMod.class.getResourceAsStream("/assets/" + FiguraMod.MOD_ID + "/scripts/sandbox.lua")) {
             if (inputStream == null) throw new IOException("Unable to get resource");
-            userGlobals.load(new String(inputStream.readAllBytes()), "sandbox").call();
+            LuaScriptCache.load("sandbox", new String(inputStream.readAllBytes()), userGlobals, false).call();
         } catch (Exception e) {
             error(new LuaError("Failed to load builtin sandbox script:\n" + e.getMessage()));
         }
 
         // read only string metatable
-        LuaString.s_metatable = new ReadOnlyLuaTable(LuaString.s_metatable);
+        // runtimes are created from several loader threads, so only wrap it once
+        synchronized (LuaString.class) {
+            if (!(LuaString.s_metatable instanceof ReadOnlyLuaTable))
+                LuaString.s_metatable = new ReadOnlyLuaTable(LuaString.s_metatable);
+        }
     }
 
     private void loadExtraLibraries() {
@@ -158,7 +162,7 @@ public class FiguraLuaRuntime {
         // load math library
         try (InputStream inputStream = FiguraMod.class.getResourceAsStream("/assets/" + FiguraMod.MOD_ID + "/scripts/math.lua")) {
             if (inputStream == null) throw new IOException("Unable to get resource");
-            userGlobals.load(new String(inputStream.readAllBytes()), "math").call();
+            LuaScriptCache.load("math", new String(inputStream.readAllBytes()), userGlobals, false).call();
         } catch (Exception e) {
             error(new LuaError("Failed to load builtin math script:\n" + e.getMessage()));
         }
@@ -366,7 +370,7 @@ public class FiguraLuaRuntime {
         // load
         String directory = PathUtils.computeSafeString(path.getParent());
         String fileName = PathUtils.computeSafeString(path.getFileName());
-        Varargs value = userGlobals.load(src, name).invoke(LuaValue.varargsOf(LuaValue.valueOf(directory), LuaValue.valueOf(fileName)));
+        Varargs value = LuaScriptCache.load(name, src, userGlobals, true).invoke(LuaValue.varargsOf(LuaValue.valueOf(directory), LuaValue.valueOf(fileName)));
         if (value == LuaValue.NIL)
             value = LuaValue.TRUE;
 
@@ -443,17 +447,33 @@ public class FiguraLuaRuntime {
     // script execution //
 
     public LuaValue load(String name, String src) {
-        return userGlobals.load(src, name, userGlobals);
+        return LuaScriptCache.load(name, src, userGlobals, false);
+    }
+
+    public LuaValue load(Prototype prototype) {
+        return new LuaClosure(prototype, userGlobals);
     }
 
     public Varargs run(Object toRun, Avatar.Instructions limit, Object... args) {
+        // resolve the event once, both for the listeners check and the call
+        if (toRun instanceof String name && events.__index(name) instanceof LuaEvent event)
+            toRun = event;
+
+        // nothing registered, skip the args parsing and the instructions hook
+        // piped events still run, since they return their args back
+        if (toRun instanceof LuaEvent event && !event.isPiped() && !event.hasListeners())
+            return LuaValue.NONE;
+
         // parse args
         LuaValue[] values = new LuaValue[args.length];
         for (int i = 0; i < values.length; i++)
             values[i] = typeManager.javaToLua(args[i]).arg1();
 
-        Varargs val = LuaValue.varargsOf(values);
+        return runWithArgs(toRun, limit, LuaValue.varargsOf(values));
+    }
 
+    // same as run, but with the args already converted to lua
+    public Varargs runWithArgs(Object toRun, Avatar.Instructions limit, Varargs val) {
         // set instructions limit
         setInstructionLimit(limit.remaining);
 
@@ -0,0 +1,194 @@
+package org.figuramc.figura.lua;
+
+import com.google.common.hash.Hashing;
+import org.figuramc.figura.FiguraMod;
+import org.figuramc.figura.utils.IOUtils;
+import org.luaj.vm2.LoadState;
+import org.luaj.vm2.Lua;
+import org.luaj.vm2.LuaClosure;
+import org.luaj.vm2.LuaError;
+import org.luaj.vm2.LuaFunction;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Prototype;
+import org.luaj.vm2.compiler.DumpState;
+import org.luaj.vm2.compiler.LuaC;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.LinkedHashMap;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client wide cache of compiled chunks, keyed by a hash of their name and source.
+ * Prototypes are not modified after compiling, so the same one can back closures of any runtime.
+ */
+public class LuaScriptCache {
+
+    private static final int MAX_ENTRIES = 1024;
+    // bump whenever the compiler output or the file layout changes, so old files on disk are not reused
+    private static final String FORMAT = "2";
+    // the dump format is only stable for one luaj build, so files of another mod or luaj version never match
+    private static final String KEY_PREFIX = FORMAT + '\0' + FiguraMod.VERSION + '\0' +
+            Objects.requireNonNullElse(Lua.class.getPackage().getImplementationVersion(), Lua._VERSION) + '\0';
+    // files start with the sha256 of the dumped chunk, which is checked before undumping it
+    private static final int DIGEST_SIZE = 32;
+
+    private static final Map<String, Prototype> CACHE = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Prototype> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    public static void init() {
+        CompletableFuture.runAsync(() -> {
+            List<Path> children = IOUtils.listPaths(getScriptCacheDirectory());
+            if (children == null)
+                return;
+
+            for (Path child : children) {
+                try {
+                    FileTime time = Files.getLastModifiedTime(child);
+                    long elapsed = TimeUnit.MILLISECONDS.toDays(System.currentTimeMillis() - time.toMillis());
+                    if (elapsed > 7)
+                        Files.deleteIfExists(child);
+                } catch (Exception ignored) {
+                    FiguraMod.debug("Failed to delete cached script \"{}\"", IOUtils.getFileNameOrEmpty(child));
+                }
+            }
+        });
+    }
+
+    /**
+     * Creates a function for the given source, compiling it only if it was not seen before.
+     * @param persist if the compiled chunk should also be kept on disk, for the next sessions
+     */
+    public static LuaFunction load(String name, String src, LuaValue env, boolean persist) {
+        return new LuaClosure(getPrototype(name, src, persist), env);
+    }
+
+    public static Prototype getPrototype(String name, String src, boolean persist) {
+        String hash = Hashing.sha256().hashString(KEY_PREFIX + name + '\0' + src, StandardCharsets.UTF_8).toString();
+
+        Prototype prototype;
+        synchronized (CACHE) {
+            prototype = CACHE.get(hash);
+        }
+        if (prototype != null)
+            return prototype;
+
+        if (persist)
+            prototype = readFromDisk(hash, name);
+
+        if (prototype == null) {
+            prototype = compile(name, src);
+            if (persist)
+                saveToDisk(hash, prototype);
+        }
+
+        synchronized (CACHE) {
+            CACHE.put(hash, prototype);
+        }
+        return prototype;
+    }
+
+    private static Prototype compile(String name, String src) {
+        try (InputStream stream = new ByteArrayInputStream(src.getBytes(StandardCharsets.UTF_8))) {
+            return LuaC.instance.compile(stream, name);
+        } catch (LuaError e) {
+            throw e;
+        } catch (Exception e) {
+            throw new LuaError("load " + name + ": " + e);
+        }
+    }
+
+    private static Prototype readFromDisk(String hash, String name) {
+        Path path = getScriptCacheDirectory().resolve(hash + ".luac");
+        if (!Files.exists(path))
+            return null;
+
+        try {
+            // truncated or corrupted files are rejected before luaj ever reads them
+            byte[] bytes = Files.readAllBytes(path);
+            if (bytes.length > DIGEST_SIZE) {
+                byte[] digest = Hashing.sha256().hashBytes(bytes, DIGEST_SIZE, bytes.length - DIGEST_SIZE).asBytes();
+                if (Arrays.equals(digest, 0, DIGEST_SIZE, bytes, 0, DIGEST_SIZE)) {
+                    Prototype prototype = LoadState.undump(new ByteArrayInputStream(bytes, DIGEST_SIZE, bytes.length - DIGEST_SIZE), name);
+                    if (prototype != null) {
+                        Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+                        return prototype;
+                    }
+                }
+            }
+            FiguraMod.debug("Discarding invalid cached script \"{}\"", hash);
+        } catch (Exception e) {
+            FiguraMod.debug("Failed to read cached script \"{}\"", hash);
+        }
+
+        // broken file, any failure is a cache miss, it will be written again after compiling
+        try {
+            Files.deleteIfExists(path);
+        } catch (Exception ignored) {}
+        return null;
+    }
+
+    private static void saveToDisk(String hash, Prototype prototype) {
+        byte[] bytes;
+        try {
+            ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            stream.write(new byte[DIGEST_SIZE]);
+            DumpState.dump(prototype, stream, false);
+            bytes = stream.toByteArray();
+            byte[] digest = Hashing.sha256().hashBytes(bytes, DIGEST_SIZE, bytes.length - DIGEST_SIZE).asBytes();
+            System.arraycopy(digest, 0, bytes, 0, DIGEST_SIZE);
+        } catch (Exception e) {
+            FiguraMod.debug("Failed to dump script \"{}\"", hash);
+            return;
+        }
+
+        CompletableFuture.runAsync(() -> {
+            Path path = getScriptCacheDirectory().resolve(hash + ".luac");
+            try {
+                // written next to it and moved in place, so a crash mid write never leaves a partial file
+                IOUtils.writeFileAtomic(path, bytes);
+            } catch (Exception e) {
+                FiguraMod.LOGGER.error("Failed to save script on cache: " + hash, e);
+            }
+        });
+    }
+
+    public static void clearCache() {
+        synchronized (CACHE) {
+            CACHE.clear();
+        }
+
+        CompletableFuture.runAsync(() -> {
+            List<Path> children = IOUtils.listPaths(getScriptCacheDirectory());
+            if (children == null)
+                return;
+
+            for (Path child : children) {
+                try {
+                    Files.deleteIfExists(child);
+                } catch (Exception ignored) {
+                    FiguraMod.debug("Failed to delete cached script \"{}\"", IOUtils.getFileNameOrEmpty(child));
+                }
+            }
+        });
+    }
+
+    // cache directory
+    public static Path getScriptCacheDirectory() {
+        return IOUtils.getOrCreateDir(FiguraMod.getCacheDirectory(), "scripts");
+    }
+}
@@ -1,21 +1,27 @@
 package org.figuramc.figura.lua;
 
 import net.minecraft.network.chat.Component;
+import org.figuramc.figura.lua.api.entity.EntityAPI;
 import org.figuramc.figura.lua.docs.FiguraDocsManager;
 import org.figuramc.figura.lua.docs.LuaTypeDoc;
+import org.figuramc.figura.model.FiguraModelPart;
+import org.figuramc.figura.model.rendering.texture.FiguraTexture;
 import org.luaj.vm2.*;
 import org.luaj.vm2.lib.OneArgFunction;
 import org.luaj.vm2.lib.TwoArgFunction;
 import org.luaj.vm2.lib.VarArgFunction;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.*;
-import java.util.Arrays;
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * One LuaTypeManager per LuaRuntime, so that people can be allowed to edit the metatables within.
+ * The methods and functions behind the metatables are shared between all of them.
  */
 public class LuaTypeManager {
 
@@ -24,62 +30,46 @@ public class LuaTypeManager {
     public void generateMetatableFor(Class<?> clazz) {
         if (metatables.containsKey(clazz))
             return;
-        if (!clazz.isAnnotationPresent(LuaWhitelist.class))
-            throw new IllegalArgumentException("Tried to generate metatable for un-whitelisted class " + clazz.getName() + "!");
+
+        ClassTemplate template = getTemplate(clazz);
 
         // Ensure that all whitelisted superclasses are loaded before this one
         try {
             generateMetatableFor(clazz.getSuperclass());
         } catch (IllegalArgumentException ignored) {}
 
+        // only the tables are created per runtime, since scripts are allowed to edit them
         LuaTable metatable = new LuaTable();
-
         LuaTable indexTable = new LuaTable();
-        Class<?> currentClass = clazz;
-        while (currentClass.isAnnotationPresent(LuaWhitelist.class)) {
-            for (Method method : currentClass.getDeclaredMethods()) {
-                if (!method.isAnnotationPresent(LuaWhitelist.class)) {
-                    continue;
-                }
-                String name = method.getName();
-                if (name.startsWith("__")) { // metamethods
-                    if (metatable.rawget(name) == LuaValue.NIL) { // Only add the most recently declared metamethod, in the most specific subclass.
-                        if (name.equals("__index")) {
-                            // Custom __index implementation. First checks the regular __index table, and if it gets NIL, then calls the custom-defined __index function.
-                            metatable.set("__index", new TwoArgFunction() {
-                                final LuaFunction wrappedIndexer = getWrapper(method);
-                                @Override
-                                public LuaValue call(LuaValue arg1, LuaValue arg2) {
-                                    LuaValue result = indexTable.get(arg2);
-                                    if (result == LuaValue.NIL)
-                                        result = wrappedIndexer.call(arg1, arg2);
-                                    return result;
-                                }
-                            });
-                        } else {
-                            metatable.set(name, getWrapper(method));
-                        }
+
+        for (Map.Entry<String, Method> entry : template.metamethods.entrySet()) {
+            String name = entry.getKey();
+            LuaFunction function = getFunction(template, name, entry.getValue());
+            if (name.equals("__index")) {
+                // Custom __index implementation. First checks the regular __index table, and if it gets NIL, then calls the custom-defined __index function.
+                metatable.set("__index", new TwoArgFunction() {
+                    @Override
+                    public LuaValue call(LuaValue arg1, LuaValue arg2) {
+                        LuaValue result = indexTable.get(arg2);
+                        if (result == LuaValue.NIL)
+                            result = function.call(arg1, arg2);
+                        return result;
                     }
-                } else { // regular methods
-                    indexTable.set(name, getWrapper(method));
-                }
+                });
+            } else {
+                metatable.set(name, function);
             }
-            currentClass = currentClass.getSuperclass();
         }
 
+        for (Map.Entry<String, Method> entry : template.methods.entrySet())
+            indexTable.set(entry.getKey(), getFunction(template, entry.getKey(), entry.getValue()));
+
         if (metatable.rawget("__index") == LuaValue.NIL)
             metatable.set("__index", indexTable);
 
         // if we don't have a special toString, then have our toString give the type name from the annotation
-        if (metatable.rawget("__tostring") == LuaValue.NIL) {
-            metatable.set("__tostring", new OneArgFunction() {
-                private final LuaString val = LuaString.valueOf(clazz.getName());
-                @Override
-                public LuaValue call(LuaValue arg) {
-                    return val;
-                }
-            });
-        }
+        if (metatable.rawget("__tostring") == LuaValue.NIL)
+            metatable.set("__tostring", template.toString);
 
         // if we don't have a special __index, then have our indexer look in the next metatable up in the java inheritance.
         if (indexTable.rawget("__index") == LuaValue.NIL) {
@@ -94,6 +84,71 @@ public class LuaTypeManager {
         metatables.put(clazz, metatable);
     }
 
+    private LuaFunction getFunction(ClassTemplate template, String name, Method method) {
+        // static methods have no userdata to get the runtime from, so they are bound to this one
+        LuaFunction shared = template.functions.get(name);
+        return shared != null ? shared : getWrapper(method);
+    }
+
+    // -- templates -- //
+
+    private static final Map<Class<?>, ClassTemplate> TEMPLATES = new ConcurrentHashMap<>();
+
+    private static ClassTemplate getTemplate(Class<?> clazz) {
+        if (!clazz.isAnnotationPresent(LuaWhitelist.class))
+            throw new IllegalArgumentException("Tried to generate metatable for un-whitelisted class " + clazz.getName() + "!");
+        return TEMPLATES.computeIfAbsent(clazz, ClassTemplate::new);
+    }
+
+    /**
+     * The whitelisted methods of a class and their functions, found once per JVM and shared by all runtimes.
+     * Functions of instance methods get the runtime from the userdata they are called on, so they do not need to be created again.
+     */
+    private static class ClassTemplate {
+        private final Map<String, Method> metamethods = new LinkedHashMap<>();
+        private final Map<String, Method> methods = new LinkedHashMap<>();
+        private final Map<String, LuaFunction> functions = new HashMap<>();
+        private final LuaFunction toString;
+
+        private ClassTemplate(Class<?> clazz) {
+            Class<?> currentClass = clazz;
+            while (currentClass.isAnnotationPresent(LuaWhitelist.class)) {
+                for (Method method : currentClass.getDeclaredMethods()) {
+                    if (!method.isAnnotationPresent(LuaWhitelist.class))
+                        continue;
+
+                    String name = method.getName();
+                    if (name.startsWith("__")) { // metamethods
+                        // Only add the most recently declared metamethod, in the most specific subclass.
+                        if (metamethods.putIfAbsent(name, method) != null)
+                            continue;
+                    } else { // regular methods
+                        methods.put(name, method);
+                    }
+                }
+                currentClass = currentClass.getSuperclass();
+            }
+
+            for (Map.Entry<String, Method> entry : metamethods.entrySet())
+                addFunction(entry.getKey(), entry.getValue());
+            for (Map.Entry<String, Method> entry : methods.entrySet())
+                addFunction(entry.getKey(), entry.getValue());
+
+            LuaString val = LuaString.valueOf(clazz.getName());
+            toString = new OneArgFunction() {
+                @Override
+                public LuaValue call(LuaValue arg) {
+                    return val;
+                }
+            };
+        }
+
+        private void addFunction(String name, Method method) {
+            if (!Modifier.isStatic(method.getModifiers()))
+                functions.put(name, new MethodWrapper(getInvoker(method), null));
+        }
+    }
+
     public void dumpMetatables(LuaTable table) {
         for (Map.Entry<Class<?>, LuaTable> entry : metatables.entrySet()) {
             if (!entry.getKey().isAnnotationPresent(LuaTypeDoc.class))
@@ -124,88 +179,225 @@ public class LuaTypeManager {
     }
 
     public VarArgFunction getWrapper(Method method) {
-        return new VarArgFunction() {
-
-            private final boolean isStatic = Modifier.isStatic(method.getModifiers());
-            private Object caller;
-
-
-            private final Class<?> clazz = method.getDeclaringClass();
-            private final Class<?>[] argumentTypes = method.getParameterTypes();
-            private final Object[] actualArgs = new Object[argumentTypes.length];
-            private final boolean[] requiredNotNil = getRequiredNotNil(method);
-
-            @Override
-            public Varargs invoke(Varargs args) {
-
-                if (!isStatic)
-                    caller = args.checkuserdata(1, clazz);
-
-                // dirty hack for QOL of ignoring the first argument if the method is static and the arg matches the class type
-                int offset = isStatic && argumentTypes.length > 0 && !argumentTypes[0].isAssignableFrom(clazz) && args.isuserdata(1) && clazz.isAssignableFrom(args.checkuserdata(1).getClass()) ? 1 : 0;
-
-                // Fill in actualArgs from args
-                for (int i = 0; i < argumentTypes.length; i++) {
-                    int argIndex = i + (isStatic ? 1 : 2) + offset;
-                    boolean nil = args.isnil(argIndex);
-                    if (nil && requiredNotNil[i])
-                        throw new LuaError("bad argument: " + method.getName() + " " + argIndex + " do not allow nil values, expected " + FiguraDocsManager.getNameFor(argumentTypes[i]));
-                    if (argIndex <= args.narg() && !nil) {
-                        try {
-                            actualArgs[i] = switch (argumentTypes[i].getName()) {
-                                case "java.lang.Number", "java.lang.Double", "double" -> args.checkdouble(argIndex);
-                                case "java.lang.String" -> args.checkjstring(argIndex);
-                                case "java.lang.Boolean", "boolean" -> args.toboolean(argIndex);
-                                case "java.lang.Float", "float" -> (float) args.checkdouble(argIndex);
-                                case "java.lang.Integer", "int" -> args.checkint(argIndex);
-                                case "java.lang.Long", "long" -> args.checklong(argIndex);
-                                case "org.luaj.vm2.LuaTable" -> args.checktable(argIndex);
-                                case "org.luaj.vm2.LuaFunction" -> args.checkfunction(argIndex);
-                                case "org.luaj.vm2.LuaValue" -> args.arg(argIndex);
-                                case "java.lang.Object" -> luaToJava(args.arg(argIndex));
-                                default -> argumentTypes[i].getName().startsWith("[") ? luaVarargToJava(args, argIndex, argumentTypes[i]) : args.checkuserdata(argIndex, argumentTypes[i]);
-                            };
-                        } catch (LuaError err) {
-                            String expectedType = FiguraDocsManager.getNameFor(argumentTypes[i]);
-                            String actualType;
-                            if (args.arg(argIndex).type() == LuaValue.TUSERDATA)
-                                actualType = FiguraDocsManager.getNameFor(args.arg(argIndex).checkuserdata().getClass());
-                            else
-                                actualType = args.arg(argIndex).typename();
-                            throw new LuaError("Invalid argument " + argIndex + " to function " + method.getName() + ". Expected " + expectedType + ", but got " + actualType);
-                        }
-                    } else {
-                        actualArgs[i] = switch (argumentTypes[i].getName()) {
-                            case "double" -> 0D;
-                            case "int" -> 0;
-                            case "long" -> 0L;
-                            case "float" -> 0f;
-                            case "boolean" -> false;
-                            default -> null;
-                        };
+        return new MethodWrapper(getInvoker(method), this);
+    }
+
+    private static class MethodWrapper extends VarArgFunction {
+
+        private final Invoker invoker;
+        private final LuaTypeManager manager; // null when shared, then the manager of the called userdata is used
+
+        private MethodWrapper(Invoker invoker, LuaTypeManager manager) {
+            this.invoker = invoker;
+            this.manager = manager;
+        }
+
+        @Override
+        public Varargs invoke(Varargs args) {
+            Method method = invoker.method;
+            boolean isStatic = invoker.isStatic;
+            Class<?> clazz = invoker.clazz;
+            Class<?>[] argumentTypes = invoker.argumentTypes;
+
+            LuaTypeManager manager = this.manager;
+            Object caller = null;
+            if (!isStatic) {
+                caller = args.checkuserdata(1, clazz);
+                if (manager == null)
+                    manager = getManager(args.arg1());
+            }
+
+            // dirty hack for QOL of ignoring the first argument if the method is static and the arg matches the class type
+            int offset = isStatic && argumentTypes.length > 0 && !argumentTypes[0].isAssignableFrom(clazz) && args.isuserdata(1) && clazz.isAssignableFrom(args.checkuserdata(1).getClass()) ? 1 : 0;
+
+            // Fill in actualArgs from args, a new array every call so nested calls do not overwrite each other
+            Object[] actualArgs = new Object[argumentTypes.length];
+            for (int i = 0; i < argumentTypes.length; i++) {
+                int argIndex = i + (isStatic ? 1 : 2) + offset;
+                boolean nil = args.isnil(argIndex);
+                if (nil && invoker.requiredNotNil[i])
+                    throw new LuaError("bad argument: " + method.getName() + " " + argIndex + " do not allow nil values, expected " + FiguraDocsManager.getNameFor(argumentTypes[i]));
+                if (argIndex <= args.narg() && !nil) {
+                    try {
+                        actualArgs[i] = invoker.converters[i].convert(manager, args, argIndex);
+                    } catch (LuaError err) {
+                        String expectedType = FiguraDocsManager.getNameFor(argumentTypes[i]);
+                        String actualType;
+                        if (args.arg(argIndex).type() == LuaValue.TUSERDATA)
+                            actualType = FiguraDocsManager.getNameFor(args.arg(argIndex).checkuserdata().getClass());
+                        else
+                            actualType = args.arg(argIndex).typename();
+                        throw new LuaError("Invalid argument " + argIndex + " to function " + method.getName() + ". Expected " + expectedType + ", but got " + actualType);
                     }
+                } else {
+                    actualArgs[i] = invoker.defaults[i];
                 }
+            }
+
+            // Invoke the wrapped method
+            Object result = invoker.invoke(caller, actualArgs);
+
+            // Convert the return value
+            return result instanceof Varargs v ? v : manager.javaToLua(result);
+        }
+
+        private LuaTypeManager getManager(LuaValue value) {
+            if (value instanceof TypedUserdata userdata)
+                return userdata.manager;
+            throw new LuaError("Tried to call " + invoker.method.getName() + " on a userdata without a runtime");
+        }
+
+        @Override
+        public String tojstring() {
+            return "function: " + invoker.method.getName();
+        }
+    }
+
+    /**
+     * Userdata which remembers the runtime that created it, so shared functions can convert their results for it.
+     */
+    private static class TypedUserdata extends LuaUserdata {
+        private final LuaTypeManager manager;
+
+        private TypedUserdata(Object obj, LuaTable metatable, LuaTypeManager manager) {
+            super(obj, metatable);
+            this.manager = manager;
+        }
+    }
+
+    // -- invokers -- //
+
+    private static final Map<Method, Invoker> INVOKERS = new ConcurrentHashMap<>();
+
+    private static Invoker getInvoker(Method method) {
+        return INVOKERS.computeIfAbsent(method, Invoker::new);
+    }
+
+    @FunctionalInterface
+    private interface ArgumentConverter {
+        Object convert(LuaTypeManager manager, Varargs args, int index);
+    }
 
-                // Invoke the wrapped method
-                Object result;
+    private static ArgumentConverter getConverter(Class<?> type) {
+        return switch (type.getName()) {
+            case "java.lang.Number", "java.lang.Double", "double" -> (manager, args, i) -> args.checkdouble(i);
+            case "java.lang.String" -> (manager, args, i) -> args.checkjstring(i);
+            case "java.lang.Boolean", "boolean" -> (manager, args, i) -> args.toboolean(i);
+            case "java.lang.Float", "float" -> (manager, args, i) -> (float) args.checkdouble(i);
+            case "java.lang.Integer", "int" -> (manager, args, i) -> args.checkint(i);
+            case "java.lang.Long", "long" -> (manager, args, i) -> args.checklong(i);
+            case "org.luaj.vm2.LuaTable" -> (manager, args, i) -> args.checktable(i);
+            case "org.luaj.vm2.LuaFunction" -> (manager, args, i) -> args.checkfunction(i);
+            case "org.luaj.vm2.LuaValue" -> (manager, args, i) -> args.arg(i);
+            case "java.lang.Object" -> (manager, args, i) -> manager.luaToJava(args.arg(i));
+            default -> type.isArray() ? (manager, args, i) -> manager.luaVarargToJava(args, i, type) : (manager, args, i) -> args.checkuserdata(i, type);
+        };
+    }
+
+    private static Object getDefault(Class<?> type) {
+        return switch (type.getName()) {
+            case "double" -> 0D;
+            case "int" -> 0;
+            case "long" -> 0L;
+            case "float" -> 0f;
+            case "boolean" -> false;
+            default -> null;
+        };
+    }
+
+    /**
+     * Everything about a whitelisted method that does not depend on the runtime, resolved once per JVM.
+     * Calls go through a method handle, adapted to always take the caller and an argument array.
+     * <p>
+     * The handle lives in a field, so it is not a constant and the target is never inlined into {@link #invoke}.
+     * That cannot be had here anyway: every whitelisted method shares the call sites in the lua interpreter and in
+     * {@link MethodWrapper}, so those stay megamorphic whatever sits behind them. A per method lambda
+     * (LambdaMetafactory) only moves that dispatch to an interface call, which measured slower than this handle.
+     */
+    private static class Invoker {
+        private static final MethodType GENERIC_TYPE = MethodType.methodType(Object.class, Object.class, Object[].class);
+
+        private final Method method;
+        private final boolean isStatic;
+        private final Class<?> clazz;
+        private final Class<?>[] argumentTypes;
+        private final ArgumentConverter[] converters;
+        private final Object[] defaults;
+        private final boolean[] requiredNotNil;
+        private final MethodHandle handle;
+
+        private Invoker(Method method) {
+            this.method = method;
+            this.isStatic = Modifier.isStatic(method.getModifiers());
+            this.clazz = method.getDeclaringClass();
+            this.argumentTypes = method.getParameterTypes();
+            this.requiredNotNil = getRequiredNotNil(method);
+
+            this.converters = new ArgumentConverter[argumentTypes.length];
+            this.defaults = new Object[argumentTypes.length];
+            for (int i = 0; i < argumentTypes.length; i++) {
+                converters[i] = getConverter(argumentTypes[i]);
+                defaults[i] = getDefault(argumentTypes[i]);
+            }
+
+            MethodHandle handle;
+            try {
+                handle = MethodHandles.lookup().unreflect(method).asFixedArity();
+                if (isStatic)
+                    handle = MethodHandles.dropArguments(handle, 0, Object.class);
+                handle = handle.asSpreader(Object[].class, argumentTypes.length).asType(GENERIC_TYPE);
+            } catch (IllegalAccessException e) {
+                // not reachable by a handle, leave it to reflection
+                handle = null;
+            }
+            this.handle = handle;
+        }
+
+        private Object invoke(Object caller, Object[] args) {
+            if (handle == null) {
                 try {
-                    result = method.invoke(caller, actualArgs);
+                    return method.invoke(caller, args);
                 } catch (IllegalAccessException | InvocationTargetException e) {
                     throw e.getCause() instanceof LuaError l ? l : new LuaError(e.getCause());
                 }
-
-                // Convert the return value
-                return result instanceof Varargs v ? v : javaToLua(result);
             }
 
-            @Override
-            public String tojstring() {
-                return "function: " + method.getName();
+            try {
+                return (Object) handle.invokeExact(caller, args);
+            } catch (LuaError e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new LuaError(t);
             }
-        };
+        }
+    }
+
+    // long lived objects, which keep the same userdata while lua still holds it
+    private static final List<Class<?>> CACHED_TYPES = List.of(FiguraModelPart.class, EntityAPI.class, FiguraTexture.class);
+    private static final Map<Class<?>, Boolean> IS_CACHED = new ConcurrentHashMap<>();
+
+    // none of the cached types override equals, so the weak keys are compared by identity
+    // the userdata holds its object, so it is only weakly referenced as well
+    private final Map<Object, WeakReference<TypedUserdata>> wrappers = new WeakHashMap<>();
+
+    private static boolean isCached(Class<?> clazz) {
+        return IS_CACHED.computeIfAbsent(clazz, c -> {
+            for (Class<?> type : CACHED_TYPES)
+                if (type.isAssignableFrom(c))
+                    return true;
+            return false;
+        });
     }
 
     private LuaValue wrap(Object instance) {
+        boolean cached = isCached(instance.getClass());
+        if (cached) {
+            WeakReference<TypedUserdata> ref = wrappers.get(instance);
+            TypedUserdata userdata = ref != null ? ref.get() : null;
+            if (userdata != null)
+                return userdata;
+        }
+
         Class<?> clazz = instance.getClass();
         LuaTable metatable = metatables.get(clazz);
         while (metatable == null) {
@@ -215,32 +407,175 @@ public class LuaTypeManager {
             metatable = metatables.get(clazz);
         }
 
-        LuaUserdata result = new LuaUserdata(instance);
-        result.setmetatable(metatable);
-        return result;
+        TypedUserdata userdata = new TypedUserdata(instance, metatable, this);
+        if (cached)
+            wrappers.put(instance, new WeakReference<>(userdata));
+        return userdata;
     }
 
     private LuaValue wrapMap(Map<?, ?> map) {
-        LuaTable table = new LuaTable();
+        if (map.isEmpty())
+            return new LuaTable();
 
+        // the keys and values are copied out, since the entries of a map are live views of it
+        Object[] elements = new Object[map.size() * 2];
+        int i = 0;
         for (Map.Entry<?, ?> entry : map.entrySet()) {
-            LuaValue key = javaToLua(entry.getKey()).arg1();
-            LuaValue val = javaToLua(entry.getValue()).arg1();
-            table.set(key, val);
+            if (i == elements.length)
+                elements = Arrays.copyOf(elements, i * 2);
+            elements[i++] = snapshot(entry.getKey());
+            elements[i++] = snapshot(entry.getValue());
         }
-
-        return table;
+        return new LazyTable(this, i == elements.length ? elements : Arrays.copyOf(elements, i), true);
     }
 
     private LuaValue wrapCollection(Collection<?> collection) {
-        LuaTable table = new LuaTable();
+        if (collection.isEmpty())
+            return new LuaTable();
+
+        Object[] elements = collection.toArray();
+        for (int i = 0; i < elements.length; i++)
+            elements[i] = snapshot(elements[i]);
+        return new LazyTable(this, elements, false);
+    }
+
+    // nested maps and collections get their own lazy table right away, so they are copied at the same time as their parent
+    private Object snapshot(Object value) {
+        return value instanceof Map<?, ?> || value instanceof Collection<?> ? javaToLua(value).arg1() : value;
+    }
+
+    /**
+     * Table of a java map or collection, which only converts its elements once the table is first used.
+     * The elements, and the elements of nested maps and collections, are copied when the table is created,
+     * so later changes on the java side are not seen, same as a regular table.
+     * Nested maps and collections are lazy as well, so only the parts a script walks into get converted.
+     */
+    private static class LazyTable extends LuaTable {
+        private final LuaTypeManager manager;
+        private final boolean map;
+        private Object[] elements; // null once filled
+
+        // maps store their keys and values one after the other
+        private LazyTable(LuaTypeManager manager, Object[] elements, boolean map) {
+            super(map ? 0 : elements.length, map ? elements.length / 2 : 0);
+            this.manager = manager;
+            this.map = map;
+            this.elements = elements;
+        }
+
+        private void fill() {
+            Object[] elements = this.elements;
+            if (elements == null)
+                return;
+            this.elements = null;
+
+            if (map) {
+                for (int i = 0; i < elements.length; i += 2) {
+                    LuaValue key = manager.javaToLua(elements[i]).arg1();
+                    LuaValue val = manager.javaToLua(elements[i + 1]).arg1();
+                    set(key, val);
+                }
+            } else {
+                for (int i = 0; i < elements.length; i++)
+                    set(i + 1, manager.javaToLua(elements[i]).arg1());
+            }
+        }
+
+        @Override
+        public LuaValue rawget(int key) {
+            fill();
+            return super.rawget(key);
+        }
+
+        @Override
+        public LuaValue rawget(LuaValue key) {
+            fill();
+            return super.rawget(key);
+        }
+
+        @Override
+        public void rawset(int key, LuaValue value) {
+            fill();
+            super.rawset(key, value);
+        }
+
+        @Override
+        public void rawset(LuaValue key, LuaValue value) {
+            fill();
+            super.rawset(key, value);
+        }
+
+        @Override
+        public void hashset(LuaValue key, LuaValue value) {
+            fill();
+            super.hashset(key, value);
+        }
+
+        @Override
+        public int rawlen() {
+            fill();
+            return super.rawlen();
+        }
+
+        @Override
+        public int length() {
+            fill();
+            return super.length();
+        }
 
-        int i = 1;
-        for (Object o : collection) {
-            table.set(i++, javaToLua(o).arg1());
+        @Override
+        public Varargs next(LuaValue key) {
+            fill();
+            return super.next(key);
         }
 
-        return table;
+        @Override
+        public Varargs inext(LuaValue key) {
+            fill();
+            return super.inext(key);
+        }
+
+        @Override
+        public void insert(int pos, LuaValue value) {
+            fill();
+            super.insert(pos, value);
+        }
+
+        @Override
+        public LuaValue remove(int pos) {
+            fill();
+            return super.remove(pos);
+        }
+
+        @Override
+        public void sort(LuaValue comparator) {
+            fill();
+            super.sort(comparator);
+        }
+
+        @Override
+        public LuaValue concat(LuaString sep, int i, int j) {
+            fill();
+            return super.concat(sep, i, j);
+        }
+
+        @Override
+        public Varargs unpack(int i, int j) {
+            fill();
+            return super.unpack(i, j);
+        }
+
+        @Override
+        public int keyCount() {
+            fill();
+            return super.keyCount();
+        }
+
+        @Override
+        public LuaValue[] keys() {
+            fill();
+            return super.keys();
+        }
     }
 
     private Varargs wrapArray(Object array) {
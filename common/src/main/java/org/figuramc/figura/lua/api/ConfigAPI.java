@@ -16,11 +16,13 @@ import org.figuramc.figura.utils.MathUtils;
 import org.luaj.vm2.*;
 
 import java.io.BufferedReader;
-import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Base64;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @LuaWhitelist
 @LuaTypeDoc(
@@ -41,8 +43,21 @@ public class ConfigAPI {
         MATRIX
     }
 
+    // write-behind saving
+    private static final long SAVE_DELAY = 1000;
+    private static final Map<Path, Store> STORES = new HashMap<>();
+    private static final Set<Store> DIRTY = new LinkedHashSet<>();
+    private static final AtomicBoolean SAVE_SCHEDULED = new AtomicBoolean();
+    private static final Object SAVE_LOCK = new Object();
+
+    static {
+        // do not lose the last changes when the game closes before the save runs
+        Runtime.getRuntime().addShutdownHook(new Thread(ConfigAPI::flushSaves, "Figura Config Save"));
+    }
+
     private final Avatar owner;
     private final boolean isHost;
+    private Store store;
     private LuaTable luaTable;
     private String name;
     private boolean loaded = false;
@@ -62,6 +77,10 @@ public class ConfigAPI {
     }
 
     public static void clearAllData() {
+        synchronized (STORES) {
+            STORES.clear();
+            DIRTY.clear();
+        }
         IOUtils.deleteFile(getConfigDataDir());
     }
 
@@ -80,21 +99,51 @@ public class ConfigAPI {
     }
 
     // write
-    private void write() {
-        // parse file target
-        Path path = getPath();
-
-        // parse the table
-        JsonObject root = new JsonObject();
-        for (LuaValue key : luaTable.keys())
-            root.add(key.toString(), writeArg(luaTable.get(key), new JsonObject()));
-
-        // write file
-        try (OutputStream fs = Files.newOutputStream(path)) {
-            fs.write(GSON.toJson(root).getBytes());
-        } catch (Exception e) {
-            FiguraMod.LOGGER.error("", e);
-            throw new LuaError("Failed to save avatar data file");
+    // each saved value is turned into json right away, but the file is only written later, off-thread
+    // so repeated saves within the delay only write once
+    private void put(String key, LuaValue val) {
+        val = val != null && (val.isboolean() || val.isstring() || val.isnumber() || val.istable() || val.isuserdata(FiguraVector.class) || val.isuserdata(FiguraMatrix.class)) ? val : LuaValue.NIL;
+        luaTable.set(key, val);
+
+        JsonElement json = writeArg(val, new JsonObject());
+        synchronized (STORES) {
+            if (json == JsonNull.INSTANCE)
+                store.entries.remove(key);
+            else
+                store.entries.put(key, json);
+            DIRTY.add(store);
+        }
+    }
+
+    private static void scheduleSave() {
+        if (SAVE_SCHEDULED.compareAndSet(false, true))
+            CompletableFuture.runAsync(ConfigAPI::flushSaves, CompletableFuture.delayedExecutor(SAVE_DELAY, TimeUnit.MILLISECONDS));
+    }
+
+    // writes every config with pending changes
+    public static void flushSaves() {
+        SAVE_SCHEDULED.set(false);
+        synchronized (SAVE_LOCK) {
+            Map<Path, JsonObject> pending = new LinkedHashMap<>();
+            synchronized (STORES) {
+                for (Store store : DIRTY) {
+                    JsonObject root = new JsonObject();
+                    for (Map.Entry<String, JsonElement> entry : store.entries.entrySet())
+                        root.add(entry.getKey(), entry.getValue());
+                    pending.put(store.path, root);
+                }
+                DIRTY.clear();
+            }
+
+            for (Map.Entry<Path, JsonObject> entry : pending.entrySet()) {
+                Path path = entry.getKey();
+                try {
+                    IOUtils.createDirIfNeeded(path.getParent());
+                    IOUtils.writeFileAtomic(path, GSON.toJson(entry.getValue()).getBytes());
+                } catch (Exception e) {
+                    FiguraMod.LOGGER.error("Failed to save avatar data file " + path, e);
+                }
+            }
         }
     }
 
@@ -174,23 +223,17 @@ public class ConfigAPI {
     // read
     private void init() {
         if (loaded) return;
+        store = getStore(getPath());
         luaTable = new LuaTable();
 
-        // read file
-        Path path = getPath();
-        JsonObject root;
-
-        if (!Files.exists(path))
-            return;
-
-        try (BufferedReader reader = Files.newBufferedReader(path)) {
-            JsonElement element = JsonParser.parseReader(reader);
-            if (element.isJsonNull())
-                return;
+        Map<String, JsonElement> entries;
+        synchronized (STORES) {
+            entries = new LinkedHashMap<>(store.entries);
+        }
 
-            root = element.getAsJsonObject();
-            for (String key : root.keySet())
-                luaTable.set(key, readArg(root.get(key), owner));
+        try {
+            for (Map.Entry<String, JsonElement> entry : entries.entrySet())
+                luaTable.set(entry.getKey(), readArg(entry.getValue(), owner));
         } catch (Exception e) {
             FiguraMod.LOGGER.error("", e);
             throw new LuaError("Failed to load avatar data file");
@@ -199,6 +242,44 @@ public class ConfigAPI {
         loaded = true;
     }
 
+    // the file is only read the first time its config is used, later uses get the values kept in memory
+    private static Store getStore(Path path) {
+        synchronized (STORES) {
+            Store store = STORES.get(path);
+            if (store != null)
+                return store;
+
+            store = new Store(path);
+            if (Files.exists(path)) {
+                try (BufferedReader reader = Files.newBufferedReader(path)) {
+                    JsonElement element = JsonParser.parseReader(reader);
+                    if (!element.isJsonNull()) {
+                        for (Map.Entry<String, JsonElement> entry : element.getAsJsonObject().entrySet())
+                            store.entries.put(entry.getKey(), entry.getValue());
+                    }
+                } catch (Exception e) {
+                    FiguraMod.LOGGER.error("", e);
+                    throw new LuaError("Failed to load avatar data file");
+                }
+            }
+
+            STORES.put(path, store);
+            return store;
+        }
+    }
+
+    /**
+     * The json of every value of a config file, shared by all avatars using that config
+     */
+    private static class Store {
+        private final Path path;
+        private final Map<String, JsonElement> entries = new LinkedHashMap<>();
+
+        private Store(Path path) {
+            this.path = path;
+        }
+    }
+
     private static LuaValue readArg(JsonElement json, Avatar owner) {
         JsonObject obj = json.getAsJsonObject();
         Type type = Type.valueOf(obj.get("type").getAsString());
@@ -287,10 +368,28 @@ public class ConfigAPI {
             return this;
 
         init();
+        put(key, val);
+        scheduleSave();
 
-        val = val != null && (val.isboolean() || val.isstring() || val.isnumber() || val.istable() || val.isuserdata(FiguraVector.class) || val.isuserdata(FiguraMatrix.class)) ? val : LuaValue.NIL;
-        luaTable.set(key, val);
-        write();
+        return this;
+    }
+
+    @LuaWhitelist
+    @LuaMethodDoc(
+            overloads = @LuaMethodOverload(
+                    argumentTypes = LuaTable.class,
+                    argumentNames = "values"
+            ),
+            value = "config.save_all"
+    )
+    public ConfigAPI saveAll(@LuaNotNil LuaTable values) {
+        if (!isHost)
+            return this;
+
+        init();
+        for (LuaValue key : values.keys())
+            put(key.tojstring(), values.get(key));
+        scheduleSave();
 
         return this;
     }
@@ -3,12 +3,15 @@ package org.figuramc.figura.lua.api;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 import java.util.function.Predicate;
 
 import org.figuramc.figura.avatar.Avatar;
+import org.figuramc.figura.lua.LuaNotNil;
 import org.figuramc.figura.lua.LuaWhitelist;
 import org.figuramc.figura.lua.api.entity.EntityAPI;
+import org.figuramc.figura.lua.api.world.BlockStateAPI;
 import org.figuramc.figura.lua.api.world.WorldAPI;
 import org.figuramc.figura.lua.docs.LuaMethodDoc;
 import org.figuramc.figura.lua.docs.LuaMethodOverload;
@@ -20,19 +23,32 @@ import org.luaj.vm2.LuaError;
 import org.luaj.vm2.LuaFunction;
 import org.luaj.vm2.LuaTable;
 import org.luaj.vm2.LuaValue;
+import org.jetbrains.annotations.Nullable;
 
 import com.mojang.datafixers.util.Pair;
 
 import kroppeb.stareval.function.Type.Int;
+import net.minecraft.core.BlockPos;
 import net.minecraft.core.Direction;
+import net.minecraft.core.SectionPos;
 import net.minecraft.world.entity.Entity;
 import net.minecraft.world.entity.EntityType;
 import net.minecraft.world.entity.Marker;
 import net.minecraft.world.entity.projectile.ProjectileUtil;
+import net.minecraft.world.level.BlockGetter;
+import net.minecraft.world.level.ChunkPos;
 import net.minecraft.world.level.ClipContext;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.entity.BlockEntity;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.material.FluidState;
+import net.minecraft.world.level.material.Fluids;
 import net.minecraft.world.phys.AABB;
 import net.minecraft.world.phys.BlockHitResult;
 import net.minecraft.world.phys.EntityHitResult;
+import net.minecraft.world.phys.HitResult;
 import net.minecraft.world.phys.Vec3;
 
 @LuaWhitelist
@@ -44,10 +60,24 @@ public class RaycastAPI {
     
     private final Avatar owner;
 
+    // shared by every raycast, so they do not need to create an entity for each cast
+    private static Marker marker;
+
     public RaycastAPI(Avatar owner) {
         this.owner = owner;
     }
 
+    private static Marker getMarker() {
+        Level level = WorldAPI.getCurrentWorld();
+        if (marker == null || marker.level() != level)
+            marker = new Marker(EntityType.MARKER, level);
+        return marker;
+    }
+
+    public static void clearMarker() {
+        marker = null;
+    }
+
     
     @LuaWhitelist
     @LuaMethodDoc(
@@ -86,24 +116,80 @@ public class RaycastAPI {
         blockCastType = (String)parseResult.getSecond()[0];
         fluidCastType = (String)parseResult.getSecond()[1];
 
-        ClipContext.Block blockContext;
+        ClipContext.Block blockContext = parseBlockContext(blockCastType);
+        ClipContext.Fluid fluidContext = parseFluidContext(fluidCastType);
+
+        BlockHitResult result = WorldAPI.getCurrentWorld().clip(new ClipContext(start.asVec3(), end.asVec3(), blockContext, fluidContext, getMarker()));
+        return LuaUtils.parseBlockHitResult(result);
+    }
+
+    @LuaWhitelist
+    @LuaMethodDoc(
+            overloads = @LuaMethodOverload(
+                    argumentTypes = {LuaTable.class, String.class, String.class},
+                    argumentNames = {"rays", "blockCastType", "fluidCastType"},
+                    returnType = LuaTable.class
+            ),
+            value = "raycast.blocks"
+    )
+    public LuaTable blocks(@LuaNotNil LuaTable rays, String blockCastType, String fluidCastType) {
+        Vec3[] points = parseRays("blocks", rays);
+        ClipContext.Block blockContext = parseBlockContext(blockCastType);
+        ClipContext.Fluid fluidContext = parseFluidContext(fluidCastType);
+
+        Marker marker = getMarker();
+        CachedBlockGetter level = new CachedBlockGetter(WorldAPI.getCurrentWorld());
+        LuaTable results = new LuaTable();
+        for (int i = 0; i < points.length / 2; i++) {
+            BlockHitResult hit = level.clip(new ClipContext(points[i * 2], points[i * 2 + 1], blockContext, fluidContext, marker));
+            if (hit.getType() == HitResult.Type.MISS)
+                continue;
+
+            BlockPos pos = hit.getBlockPos();
+            LuaTable result = new LuaTable();
+            result.set(1, owner.luaRuntime.typeManager.javaToLua(new BlockStateAPI(level.getBlockState(pos), pos)).arg1());
+            result.set(2, owner.luaRuntime.typeManager.javaToLua(FiguraVec3.fromVec3(hit.getLocation())).arg1());
+            result.set(3, hit.getDirection().getName());
+            results.set(i + 1, result);
+        }
+        return results;
+    }
+
+    private static ClipContext.Block parseBlockContext(String blockCastType) {
         try{
-            blockContext = blockCastType != null ? ClipContext.Block.valueOf(blockCastType.toUpperCase(Locale.US)) : ClipContext.Block.COLLIDER;
+            return blockCastType != null ? ClipContext.Block.valueOf(blockCastType.toUpperCase(Locale.US)) : ClipContext.Block.COLLIDER;
         }
         catch(IllegalArgumentException e){
             throw new LuaError("Invalid blockRaycastType provided");
         }
+    }
 
-        ClipContext.Fluid fluidContext;
+    private static ClipContext.Fluid parseFluidContext(String fluidCastType) {
         try{
-            fluidContext = fluidCastType != null ? ClipContext.Fluid.valueOf(fluidCastType.toUpperCase(Locale.US)) : ClipContext.Fluid.NONE;
+            return fluidCastType != null ? ClipContext.Fluid.valueOf(fluidCastType.toUpperCase(Locale.US)) : ClipContext.Fluid.NONE;
         }
         catch(IllegalArgumentException e){
             throw new LuaError("Invalid fluidRaycastType provided");
         }
+    }
 
-        BlockHitResult result = WorldAPI.getCurrentWorld().clip(new ClipContext(start.asVec3(), end.asVec3(), blockContext, fluidContext, new Marker(EntityType.MARKER, WorldAPI.getCurrentWorld())));
-        return LuaUtils.parseBlockHitResult(result);
+    // reads an array of rays, each one a table with the start and end Vector3, into a flat start, end array
+    private static Vec3[] parseRays(String method, LuaTable rays) {
+        int count = rays.length();
+        Vec3[] points = new Vec3[count * 2];
+        for (int i = 1; i <= count; i++) {
+            LuaValue arg = rays.get(i);
+            if (!arg.istable())
+                throw new LuaError("Illegal argument to " + method + "() at array index " + i + ": Expected table, recieved " + arg.typename() + " (" + arg + ")");
+
+            for (int j = 1; j <= 2; j++) {
+                LuaValue vec = arg.get(j);
+                if (!vec.isuserdata(FiguraVec3.class))
+                    throw new LuaError("Illegal argument to " + method + "() at array index " + i + " at index " + j + ": Expected Vector3, recieved " + vec.typename() + " (" + vec + ")");
+                points[(i - 1) * 2 + j - 1] = ((FiguraVec3) vec.checkuserdata(FiguraVec3.class)).asVec3();
+            }
+        }
+        return points;
     }
 
     @LuaWhitelist
@@ -141,21 +227,53 @@ public class RaycastAPI {
         end = pair.getFirst().getSecond();
 
         final LuaFunction fn = (LuaFunction)pair.getSecond()[0];
+        Predicate<Entity> entityPredicate = entityPredicate(fn);
+
+        EntityHitResult result = ProjectileUtil.getEntityHitResult(getMarker(), start.asVec3(), end.asVec3(), new AABB(start.asVec3(), end.asVec3()), entityPredicate, Double.MAX_VALUE);
+
+        if (result != null)
+            return new Object[]{EntityAPI.wrap(result.getEntity()), FiguraVec3.fromVec3(result.getLocation())};
+
+        return null;
+    }
 
-        Predicate<Entity> entityPredicate = (entity) -> {
+    @LuaWhitelist
+    @LuaMethodDoc(
+            overloads = @LuaMethodOverload(
+                    argumentTypes = {LuaTable.class, LuaFunction.class},
+                    argumentNames = {"rays", "predicate"},
+                    returnType = LuaTable.class
+            ),
+            value = "raycast.entities"
+    )
+    public LuaTable entities(@LuaNotNil LuaTable rays, LuaFunction predicate) {
+        Vec3[] points = parseRays("entities", rays);
+        Predicate<Entity> entityPredicate = entityPredicate(predicate);
+
+        Marker marker = getMarker();
+        LuaTable results = new LuaTable();
+        for (int i = 0; i < points.length / 2; i++) {
+            Vec3 start = points[i * 2], end = points[i * 2 + 1];
+            EntityHitResult hit = ProjectileUtil.getEntityHitResult(marker, start, end, new AABB(start, end), entityPredicate, Double.MAX_VALUE);
+            if (hit == null)
+                continue;
+
+            LuaTable result = new LuaTable();
+            result.set(1, owner.luaRuntime.typeManager.javaToLua(EntityAPI.wrap(hit.getEntity())).arg1());
+            result.set(2, owner.luaRuntime.typeManager.javaToLua(FiguraVec3.fromVec3(hit.getLocation())).arg1());
+            results.set(i + 1, result);
+        }
+        return results;
+    }
+
+    private Predicate<Entity> entityPredicate(LuaFunction fn) {
+        return (entity) -> {
             if (fn == null) return true;
             LuaValue result = fn.invoke(this.owner.luaRuntime.typeManager.javaToLua(EntityAPI.wrap(entity))).arg1();
             if ((result.isboolean() && result.checkboolean() == false) || result.isnil())
                 return false;
             return true;
         };
-
-        EntityHitResult result = ProjectileUtil.getEntityHitResult(new Marker(EntityType.MARKER, WorldAPI.getCurrentWorld()), start.asVec3(), end.asVec3(), new AABB(start.asVec3(), end.asVec3()), entityPredicate, Double.MAX_VALUE);
-
-        if (result != null)
-            return new Object[]{EntityAPI.wrap(result.getEntity()), FiguraVec3.fromVec3(result.getLocation())};
-
-        return null;
     }
 
     @LuaWhitelist
@@ -271,4 +389,57 @@ public class RaycastAPI {
            return Optional.of(Pair.of(min.add(g * d, g * e, g * f), direction));
         }
      }
+
+    // block getter for a batch of raycasts, keeping the chunks it already looked up
+    private static class CachedBlockGetter implements BlockGetter {
+        private final Level level;
+        private final Map<Long, LevelChunk> chunks = new HashMap<>();
+        private long lastPos = Long.MIN_VALUE;
+        private LevelChunk lastChunk;
+
+        private CachedBlockGetter(Level level) {
+            this.level = level;
+        }
+
+        private LevelChunk getChunk(BlockPos pos) {
+            int x = SectionPos.blockToSectionCoord(pos.getX());
+            int z = SectionPos.blockToSectionCoord(pos.getZ());
+            long chunkPos = ChunkPos.asLong(x, z);
+            if (chunkPos != lastPos) {
+                lastChunk = chunks.computeIfAbsent(chunkPos, l -> level.getChunk(x, z));
+                lastPos = chunkPos;
+            }
+            return lastChunk;
+        }
+
+        @Nullable
+        @Override
+        public BlockEntity getBlockEntity(BlockPos pos) {
+            return level.getBlockEntity(pos);
+        }
+
+        @Override
+        public BlockState getBlockState(BlockPos pos) {
+            if (level.isOutsideBuildHeight(pos))
+                return Blocks.VOID_AIR.defaultBlockState();
+            return getChunk(pos).getBlockState(pos);
+        }
+
+        @Override
+        public FluidState getFluidState(BlockPos pos) {
+            if (level.isOutsideBuildHeight(pos))
+                return Fluids.EMPTY.defaultFluidState();
+            return getChunk(pos).getFluidState(pos);
+        }
+
+        @Override
+        public int getHeight() {
+            return level.getHeight();
+        }
+
+        @Override
+        public int getMinBuildHeight() {
+            return level.getMinBuildHeight();
+        }
+    }
 }
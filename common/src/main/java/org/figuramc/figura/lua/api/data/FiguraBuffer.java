@@ -9,10 +9,12 @@ import org.figuramc.figura.lua.docs.LuaTypeDoc;
 import org.figuramc.figura.permissions.Permissions;
 import org.luaj.vm2.LuaError;
 import org.luaj.vm2.LuaString;
+import org.luaj.vm2.LuaTable;
 import org.luaj.vm2.LuaValue;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.*;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
@@ -24,13 +26,16 @@ import java.util.Stack;
 @LuaTypeDoc(value = "buffer", name = "Buffer")
 public class FiguraBuffer implements AutoCloseable {
     private static final int CAPACITY_INCREASE_STEP = 512;
+    private static final int STREAM_CHUNK_SIZE = 8192;
     private final Avatar parent;
     private int length = 0, position = 0;
     private byte[] buf;
     private boolean isClosed;
+    private final boolean readOnly;
 
     public FiguraBuffer(Avatar parent) {
         this.parent = parent;
+        this.readOnly = false;
         if (parent.openBuffers.size() > getMaxBuffersCount()) {
             parent.noPermissions.add(Permissions.BUFFERS_COUNT);
             throw new LuaError("You have exceed the max amount of open buffers");
@@ -45,6 +50,7 @@ public class FiguraBuffer implements AutoCloseable {
 
     public FiguraBuffer(Avatar parent, int cap) {
         this.parent = parent;
+        this.readOnly = false;
         if (cap > getMaxCapacity()) {
             parent.noPermissions.add(Permissions.BUFFER_SIZE);
             throw new LuaError("Unable to create a buffer with capacity %s");
@@ -52,30 +58,57 @@ public class FiguraBuffer implements AutoCloseable {
         buf = new byte[cap];
     }
 
+    /**
+     * A read only buffer over the given data, which is shared instead of copied
+     */
+    public FiguraBuffer(Avatar parent, byte[] data) {
+        this.parent = parent;
+        this.readOnly = true;
+        if (parent.openBuffers.size() > getMaxBuffersCount()) {
+            parent.noPermissions.add(Permissions.BUFFERS_COUNT);
+            throw new LuaError("You have exceed the max amount of open buffers");
+        }
+        buf = data;
+        length = data.length;
+        parent.openBuffers.add(this);
+    }
+
     private void ensureBufCapacity(int cap) {
         if (cap > getMaxCapacity())
             throw new LuaError("Can't increase this buffer capacity to %s, max capacity is %s"
                     .formatted(cap, getMaxCapacity()));
         if (cap > buf.length) {
-            buf = Arrays.copyOf(buf, Math.min(buf.length+CAPACITY_INCREASE_STEP, getMaxCapacity()));
+            // doubling, so filling a buffer byte by byte only copies it a few times
+            long grown = Math.max((long) buf.length * 2, CAPACITY_INCREASE_STEP);
+            buf = Arrays.copyOf(buf, (int) Math.max(cap, Math.min(grown, getMaxCapacity())));
         }
     }
 
     private byte[] readNBytes(int count) {
-        byte[] arr = new byte[Math.min(count, available())];
-        int b;
-        int i = 0;
-        for (; i < count && (b = this.read()) != -1; i++) {
-            arr[i] = (byte) b;
-        }
-        if (i < count) {
-            byte[] newArr = new byte[i];
-            System.arraycopy(arr, 0, newArr ,0, i);
-            arr = newArr;
-        }
+        checkIsClosed();
+        int len = Math.max(Math.min(count, available()), 0);
+        byte[] arr = Arrays.copyOfRange(buf, position, position + len);
+        position += len;
         return arr;
     }
 
+    // makes room for count bytes at the current position, returning where to write them
+    private int reserve(int count) {
+        checkIsWritable();
+        int start = position;
+        int end = start + count;
+        if (end < 0)
+            throw new LuaError("Can't increase this buffer capacity past %s".formatted(Integer.MAX_VALUE));
+        ensureBufCapacity(end);
+        position = end;
+        length = Math.max(length, end);
+        return start;
+    }
+
+    private ByteBuffer view(int start, int count, Boolean littleEndian) {
+        return ByteBuffer.wrap(buf, start, count).order(littleEndian != null && littleEndian ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+    }
+
     @LuaWhitelist
     @LuaMethodDoc("buffer.read")
     public int read() {
@@ -296,6 +329,7 @@ public class FiguraBuffer implements AutoCloseable {
     )
     public void write(@LuaNotNil int val) {
         checkIsClosed();
+        checkIsWritable();
         if (position == length) {
             length++;
             ensureBufCapacity(length);
@@ -305,9 +339,180 @@ public class FiguraBuffer implements AutoCloseable {
     }
 
     private void writeBytes(byte[] bytes) {
-        for (byte aByte : bytes) {
-            write(aByte & 0xff);
-        }
+        writeBytes(bytes, 0, bytes.length);
+    }
+
+    private void writeBytes(byte[] bytes, int offset, int count) {
+        checkIsClosed();
+        int start = reserve(count);
+        System.arraycopy(bytes, offset, buf, start, count);
+    }
+
+    // -- bulk typed access -- //
+
+    @LuaWhitelist
+    @LuaMethodDoc(
+            value = "buffer.read_floats",
+            overloads = {
+                    @LuaMethodOverload(
+                            argumentNames = "count",
+                            argumentTypes = Integer.class,
+                            returnType = LuaTable.class
+                    ),
+                    @LuaMethodOverload(
+                            argumentNames = {"count", "littleEndian"},
+                            argumentTypes = {Integer.class, Boolean.class},
+                            returnType = LuaTable.class
+                    )
+            }
+    )
+    public LuaTable readFloats(@LuaNotNil Integer count, Boolean littleEndian) {
+        checkIsClosed();
+        int n = Math.max(Math.min(count, available() / 4), 0);
+        float[] arr = new float[n];
+        view(position, n * 4, littleEndian).asFloatBuffer().get(arr);
+        position += n * 4;
+        LuaTable table = new LuaTable(n, 0);
+        for (int i = 0; i < n; i++)
+            table.set(i + 1, LuaValue.valueOf(arr[i]));
+        return table;
+    }
+
+    @LuaWhitelist
+    @LuaMethodDoc(
+            value = "buffer.read_ints",
+            overloads = {
+                    @LuaMethodOverload(
+                            argumentNames = "count",
+                            argumentTypes = Integer.class,
+                            returnType = LuaTable.class
+                    ),
+                    @LuaMethodOverload(
+                            argumentNames = {"count", "littleEndian"},
+                            argumentTypes = {Integer.class, Boolean.class},
+                            returnType = LuaTable.class
+                    )
+            }
+    )
+    public LuaTable readInts(@LuaNotNil Integer count, Boolean littleEndian) {
+        checkIsClosed();
+        int n = Math.max(Math.min(count, available() / 4), 0);
+        int[] arr = new int[n];
+        view(position, n * 4, littleEndian).asIntBuffer().get(arr);
+        position += n * 4;
+        LuaTable table = new LuaTable(n, 0);
+        for (int i = 0; i < n; i++)
+            table.set(i + 1, LuaValue.valueOf(arr[i]));
+        return table;
+    }
+
+    @LuaWhitelist
+    @LuaMethodDoc(
+            value = "buffer.read_shorts",
+            overloads = {
+                    @LuaMethodOverload(
+                            argumentNames = "count",
+                            argumentTypes = Integer.class,
+                            returnType = LuaTable.class
+                    ),
+                    @LuaMethodOverload(
+                            argumentNames = {"count", "littleEndian"},
+                            argumentTypes = {Integer.class, Boolean.class},
+                            returnType = LuaTable.class
+                    )
+            }
+    )
+    public LuaTable readShorts(@LuaNotNil Integer count, Boolean littleEndian) {
+        checkIsClosed();
+        int n = Math.max(Math.min(count, available() / 2), 0);
+        short[] arr = new short[n];
+        view(position, n * 2, littleEndian).asShortBuffer().get(arr);
+        position += n * 2;
+        LuaTable table = new LuaTable(n, 0);
+        for (int i = 0; i < n; i++)
+            table.set(i + 1, LuaValue.valueOf(arr[i]));
+        return table;
+    }
+
+    @LuaWhitelist
+    @LuaMethodDoc(
+            value = "buffer.write_floats",
+            overloads = {
+                    @LuaMethodOverload(
+                            argumentNames = "values",
+                            argumentTypes = LuaTable.class,
+                            returnType = Integer.class
+                    ),
+                    @LuaMethodOverload(
+                            argumentNames = {"values", "littleEndian"},
+                            argumentTypes = {LuaTable.class, Boolean.class},
+                            returnType = Integer.class
+                    )
+            }
+    )
+    public int writeFloats(@LuaNotNil LuaTable values, Boolean littleEndian) {
+        checkIsClosed();
+        // convert everything first, so an invalid value leaves the buffer untouched
+        int n = values.length();
+        float[] arr = new float[n];
+        for (int i = 0; i < n; i++)
+            arr[i] = (float) values.get(i + 1).checkdouble();
+        view(reserve(n * 4), n * 4, littleEndian).asFloatBuffer().put(arr);
+        return n * 4;
+    }
+
+    @LuaWhitelist
+    @LuaMethodDoc(
+            value = "buffer.write_ints",
+            overloads = {
+                    @LuaMethodOverload(
+                            argumentNames = "values",
+                            argumentTypes = LuaTable.class,
+                            returnType = Integer.class
+                    ),
+                    @LuaMethodOverload(
+                            argumentNames = {"values", "littleEndian"},
+                            argumentTypes = {LuaTable.class, Boolean.class},
+                            returnType = Integer.class
+                    )
+            }
+    )
+    public int writeInts(@LuaNotNil LuaTable values, Boolean littleEndian) {
+        checkIsClosed();
+        // convert everything first, so an invalid value leaves the buffer untouched
+        int n = values.length();
+        int[] arr = new int[n];
+        for (int i = 0; i < n; i++)
+            arr[i] = values.get(i + 1).checkint();
+        view(reserve(n * 4), n * 4, littleEndian).asIntBuffer().put(arr);
+        return n * 4;
+    }
+
+    @LuaWhitelist
+    @LuaMethodDoc(
+            value = "buffer.write_shorts",
+            overloads = {
+                    @LuaMethodOverload(
+                            argumentNames = "values",
+                            argumentTypes = LuaTable.class,
+                            returnType = Integer.class
+                    ),
+                    @LuaMethodOverload(
+                            argumentNames = {"values", "littleEndian"},
+                            argumentTypes = {LuaTable.class, Boolean.class},
+                            returnType = Integer.class
+                    )
+            }
+    )
+    public int writeShorts(@LuaNotNil LuaTable values, Boolean littleEndian) {
+        checkIsClosed();
+        // convert everything first, so an invalid value leaves the buffer untouched
+        int n = values.length();
+        short[] arr = new short[n];
+        for (int i = 0; i < n; i++)
+            arr[i] = (short) values.get(i + 1).checkint();
+        view(reserve(n * 2), n * 2, littleEndian).asShortBuffer().put(arr);
+        return n * 2;
     }
 
     @LuaWhitelist
@@ -572,10 +777,10 @@ public class FiguraBuffer implements AutoCloseable {
             throw new LuaError("Expected string, got %s".formatted(val.typename()));
         }
         else {
-            byte[] bytes = new byte[byteArray.length()];
-            byteArray.copyInto(0, bytes, 0, bytes.length);
-            writeBytes(bytes);
-            return bytes.length;
+            int len = byteArray.length();
+            int start = reserve(len);
+            byteArray.copyInto(0, buf, start, len);
+            return len;
         }
     }
 
@@ -644,13 +849,19 @@ public class FiguraBuffer implements AutoCloseable {
     )
     public int readFromStream(@LuaNotNil FiguraInputStream stream, Integer amount) {
         checkIsClosed();
+        checkIsWritable();
         if (amount == null) amount = getMaxCapacity()-position;
         else amount = Math.max(Math.min(amount, getMaxCapacity()-position), 0);
         int i = 0;
-        for (; i < amount; i++) {
-            int b = stream.read();
-            if (b == -1) break;
-            write(b);
+        while (i < amount) {
+            // read straight into the buffer, growing it as the data comes
+            int chunk = Math.min(amount - i, STREAM_CHUNK_SIZE);
+            ensureBufCapacity(position + chunk);
+            int read = stream.read(buf, position, chunk);
+            if (read == -1) break;
+            position += read;
+            length = Math.max(length, position);
+            i += read;
         }
         return i;
     }
@@ -670,8 +881,9 @@ public class FiguraBuffer implements AutoCloseable {
         checkIsClosed();
         if (amount == null) amount = available();
         else amount = Math.max(Math.min(amount, available()), -1);
-        for (int i = 0; i < amount; i++) {
-            stream.write(read());
+        if (amount > 0) {
+            stream.write(buf, position, amount);
+            position += amount;
         }
         return amount;
     }
@@ -691,6 +903,12 @@ public class FiguraBuffer implements AutoCloseable {
         }
     }
 
+    @LuaWhitelist
+    @LuaMethodDoc(value = "buffer.is_read_only")
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
     @LuaWhitelist
     @LuaMethodDoc(value = "buffer.is_closed")
     public boolean isClosed() {
@@ -701,6 +919,10 @@ public class FiguraBuffer implements AutoCloseable {
         if (isClosed) throw new LuaError("This byte buffer is closed and cant be used anymore");
     }
 
+    private void checkIsWritable() {
+        if (readOnly) throw new LuaError("This byte buffer is read only");
+    }
+
     @Override
     public String toString() {
         return "Buffer";
@@ -726,6 +948,20 @@ public class FiguraBuffer implements AutoCloseable {
             return parent.read();
         }
 
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            if (!marks.empty()) {
+                Mark m = marks.peek();
+                len = Math.min(len, m.pos + m.readLimit - parent.getPosition() + 1);
+            }
+            int count = Math.min(len, parent.available());
+            if (count <= 0) return -1;
+            System.arraycopy(parent.buf, parent.position, b, off, count);
+            parent.position += count;
+            return count;
+        }
+
         @Override
         public boolean markSupported() {
             return true;
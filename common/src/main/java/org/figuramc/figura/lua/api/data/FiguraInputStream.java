@@ -43,6 +43,16 @@ public class FiguraInputStream extends InputStream {
         }
     }
 
+    @Override
+    public int read(byte[] b, int off, int len) {
+        try {
+            if (asyncOnly) throw new IOException("This stream supports only async read");
+            return sourceStream.read(b, off, len);
+        } catch (IOException e) {
+            throw new LuaError(e);
+        }
+    }
+
     @LuaWhitelist
     @LuaMethodDoc("input_stream.read_async")
     public FiguraFuture<LuaString> readAsync(Integer limit) {
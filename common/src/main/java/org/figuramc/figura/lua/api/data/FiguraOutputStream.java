@@ -41,6 +41,15 @@ public class FiguraOutputStream extends OutputStream {
         }
     }
 
+    @Override
+    public void write(byte[] b, int off, int len) {
+        try {
+            destinationStream.write(b, off, len);
+        } catch (IOException e) {
+            throw new LuaError(e);
+        }
+    }
+
     @Override
     @LuaWhitelist
     @LuaMethodDoc("output_stream.flush")
@@ -6,13 +6,16 @@ import org.figuramc.figura.lua.LuaWhitelist;
 import org.figuramc.figura.lua.docs.LuaMethodDoc;
 import org.figuramc.figura.lua.docs.LuaMethodOverload;
 import org.figuramc.figura.lua.docs.LuaTypeDoc;
+import org.figuramc.figura.permissions.Permissions;
 import org.luaj.vm2.LuaError;
 import org.luaj.vm2.LuaTable;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.*;
 import java.util.zip.GZIPInputStream;
 
 @LuaWhitelist
@@ -20,10 +23,56 @@ import java.util.zip.GZIPInputStream;
 public class ResourcesAPI {
     private final Avatar parent;
 
+    // resources are stored gzipped, so they are inflated once and the data shared by every read
+    private final Map<String, byte[]> decompressed = new HashMap<>();
+    private final Set<String> oversized = new HashSet<>();
+    private long decompressedSize;
+
+    private static final int MAX_INITIAL_SIZE = 1024 * 1024;
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
     public ResourcesAPI(Avatar parent) {
         this.parent = parent;
     }
 
+    /**
+     * Returns the inflated data of the resource, or null when caching it would go over the avatar buffer size permission
+     * in which case the resource is streamed instead, inflating only what the script reads
+     */
+    private byte[] getData(String path, byte[] compressed) throws IOException {
+        byte[] data = decompressed.get(path);
+        if (data != null)
+            return data;
+
+        if (oversized.contains(path))
+            return null;
+
+        // resources come from other players, so the size in the gzip trailer is only a hint
+        // the inflating itself stops as soon as the data goes over the budget
+        long budget = Math.min(parent.permissions.get(Permissions.BUFFER_SIZE), MAX_ARRAY_SIZE) - decompressedSize;
+        long hint = compressed.length >= 4 ? ByteBuffer.wrap(compressed, compressed.length - 4, 4).order(ByteOrder.LITTLE_ENDIAN).getInt() & 0xFFFFFFFFL : 0;
+        byte[] buf = new byte[(int) Math.max(Math.min(Math.min(hint, budget), MAX_INITIAL_SIZE), 1)];
+        int read = 0;
+
+        try (GZIPInputStream stream = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            int n;
+            while ((n = stream.read(buf, read, buf.length - read)) != -1) {
+                read += n;
+                if (read > budget) {
+                    oversized.add(path);
+                    return null;
+                }
+                if (read == buf.length)
+                    buf = Arrays.copyOf(buf, (int) Math.min((long) buf.length * 2, budget + 1));
+            }
+        }
+
+        data = read == buf.length ? buf : Arrays.copyOf(buf, read);
+        decompressed.put(path, data);
+        decompressedSize += data.length;
+        return data;
+    }
+
     @LuaWhitelist
     @LuaMethodDoc(
             value = "resources.get",
@@ -34,15 +83,44 @@ public class ResourcesAPI {
             )
     )
     public FiguraInputStream get(@LuaNotNil String path) {
+        byte[] compressed = parent.resources.get(path);
+        if (compressed == null)
+            return null;
+
+        try {
+            byte[] data = getData(path, compressed);
+            // over the budget, inflate while reading instead
+            InputStream stream = data != null ? new ByteArrayInputStream(data) : new GZIPInputStream(new ByteArrayInputStream(compressed));
+            return new FiguraInputStream(parent, stream);
+        } catch (IOException e) {
+            throw new LuaError(e);
+        }
+    }
+
+    @LuaWhitelist
+    @LuaMethodDoc(
+            value = "resources.get_buffer",
+            overloads = @LuaMethodOverload (
+                    returnType = FiguraBuffer.class,
+                    argumentTypes = String.class,
+                    argumentNames = "path"
+            )
+    )
+    public FiguraBuffer getBuffer(@LuaNotNil String path) {
+        byte[] compressed = parent.resources.get(path);
+        if (compressed == null)
+            return null;
+
         try {
-            if (parent.resources.containsKey(path)) {
-                ByteArrayInputStream bais = new ByteArrayInputStream(parent.resources.get(path));
-                return new FiguraInputStream(parent, new GZIPInputStream(bais));
+            byte[] data = getData(path, compressed);
+            if (data == null) {
+                parent.noPermissions.add(Permissions.BUFFER_SIZE);
+                throw new LuaError("Resource \"%s\" is too big to be loaded in a buffer".formatted(path));
             }
+            return new FiguraBuffer(parent, data);
         } catch (IOException e) {
             throw new LuaError(e);
         }
-        return null;
     }
 
     @LuaWhitelist
@@ -37,10 +37,14 @@ import org.luaj.vm2.LuaError;
 import org.luaj.vm2.LuaTable;
 import org.luaj.vm2.LuaValue;
 
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.WeakHashMap;
 
 @LuaWhitelist
 @LuaTypeDoc(
@@ -56,6 +60,10 @@ public class EntityAPI<T extends Entity> {
 
     private String cacheType;
 
+    // wrappers are reused per entity, so lua keeps getting the same (cached) userdata for it
+    // the wrapper holds its entity, so it is only weakly referenced as well
+    private static final Map<Entity, WeakReference<EntityAPI<?>>> WRAPPERS = Collections.synchronizedMap(new WeakHashMap<>());
+
     public EntityAPI(T entity) {
         this.entity = entity;
         entityUUID = entity.getUUID();
@@ -64,11 +72,21 @@ public class EntityAPI<T extends Entity> {
     public static EntityAPI<?> wrap(Entity e) {
         if (e == null)
             return null;
+
+        WeakReference<EntityAPI<?>> ref = WRAPPERS.get(e);
+        EntityAPI<?> api = ref != null ? ref.get() : null;
+        if (api != null)
+            return api;
+
         if (e instanceof Player p)
-            return new PlayerAPI(p);
-        if (e instanceof LivingEntity le)
-            return new LivingEntityAPI<>(le);
-        return new EntityAPI<>(e);
+            api = new PlayerAPI(p);
+        else if (e instanceof LivingEntity le)
+            api = new LivingEntityAPI<>(le);
+        else
+            api = new EntityAPI<>(e);
+
+        WRAPPERS.put(e, new WeakReference<>(api));
+        return api;
     }
 
     protected final boolean checkEntity() {
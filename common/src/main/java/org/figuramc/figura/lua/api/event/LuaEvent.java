@@ -11,9 +11,10 @@ import org.figuramc.figura.lua.docs.LuaMethodOverload;
 import org.figuramc.figura.lua.docs.LuaTypeDoc;
 import org.luaj.vm2.LuaError;
 import org.luaj.vm2.LuaFunction;
-import org.luaj.vm2.LuaTable;
+import org.luaj.vm2.LuaValue;
 import org.luaj.vm2.Varargs;
 
+import java.util.Arrays;
 import java.util.Deque;
 import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedDeque;
@@ -61,15 +62,44 @@ public class LuaEvent {
         if (piped)
             return callPiped(args);
 
-        LuaTable result = new LuaTable();
+        // keep each return, so the results array can be allocated once with the right size
+        Varargs[] returns = new Varargs[functions.size()];
+        int calls = 0, total = 0;
         for (LuaFunction function : functions) {
             FiguraMod.pushProfiler(function.name());
             Varargs val = function.invoke(args);
-            for (int i = 0; i < val.narg(); i++)
-                result.insert(0, val.arg(i + 1));
+            // a function may have removed others, flushing the queue while iterating
+            if (calls == returns.length)
+                returns = Arrays.copyOf(returns, calls * 2 + 1);
+            returns[calls++] = val;
+            total += val.narg();
             FiguraMod.popProfiler();
         }
-        return result.unpack();
+
+        if (total == 0)
+            return LuaValue.NONE;
+
+        // nil returns are skipped
+        LuaValue[] result = new LuaValue[total];
+        int count = 0;
+        for (int i = 0; i < calls; i++) {
+            Varargs val = returns[i];
+            for (int j = 1; j <= val.narg(); j++) {
+                LuaValue value = val.arg(j);
+                if (!value.isnil())
+                    result[count++] = value;
+            }
+        }
+        return LuaValue.varargsOf(count == total ? result : Arrays.copyOf(result, count));
+    }
+
+    // If this event has any function to run, including the ones still waiting in the queue
+    public boolean hasListeners() {
+        return !functions.isEmpty() || !queue.isEmpty();
+    }
+
+    public boolean isPiped() {
+        return piped;
     }
 
     private Varargs callPiped(Varargs args) {
@@ -0,0 +1,47 @@
+package org.figuramc.figura.lua.api.nameplate;
+
+import net.minecraft.network.chat.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the last built nameplate text of each player
+ * the text is only rebuilt when the original text, the customization, the name or the badges changed,
+ * since building it requires several text replacements
+ */
+public class NameplateCache {
+
+    public static final NameplateCache ENTITY = new NameplateCache();
+    public static final NameplateCache LIST = new NameplateCache();
+
+    private static final int MAX_ENTRIES = 512;
+
+    private final Map<UUID, Entry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<UUID, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    /**
+     * @param custom the customization text, compared by reference since the customization replaces it when the text is set
+     */
+    public Component get(UUID id, Component text, Component custom, String name, Component badges, int config, Supplier<Component> builder) {
+        Entry entry = entries.get(id);
+        if (entry != null && entry.custom == custom && entry.config == config && entry.name.equals(name) && entry.badges.equals(badges) && entry.text.equals(text))
+            return entry.result;
+
+        Component result = builder.get();
+        entries.put(id, new Entry(text, custom, name, badges, config, result));
+        return result;
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    private record Entry(Component text, Component custom, String name, Component badges, int config, Component result) {}
+}
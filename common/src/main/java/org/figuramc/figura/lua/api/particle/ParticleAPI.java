@@ -1,6 +1,7 @@
 package org.figuramc.figura.lua.api.particle;
 
 import com.mojang.brigadier.StringReader;
+import com.mojang.brigadier.exceptions.CommandSyntaxException;
 import com.mojang.datafixers.util.Pair;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.particle.Particle;
@@ -15,8 +16,14 @@ import org.figuramc.figura.lua.docs.LuaMethodDoc;
 import org.figuramc.figura.lua.docs.LuaMethodOverload;
 import org.figuramc.figura.lua.docs.LuaTypeDoc;
 import org.figuramc.figura.math.vector.FiguraVec3;
+import org.figuramc.figura.permissions.Permissions;
 import org.figuramc.figura.utils.LuaUtils;
 import org.luaj.vm2.LuaError;
+import org.luaj.vm2.LuaTable;
+import org.luaj.vm2.LuaValue;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 @LuaWhitelist
 @LuaTypeDoc(
@@ -25,6 +32,15 @@ import org.luaj.vm2.LuaError;
 )
 public class ParticleAPI {
 
+    // parsed particle options by their id, shared by every avatar
+    private static final int OPTIONS_CACHE_SIZE = 256;
+    private static final Map<String, ParticleOptions> OPTIONS_CACHE = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ParticleOptions> eldest) {
+            return size() > OPTIONS_CACHE_SIZE;
+        }
+    };
+
     private final Avatar owner;
 
     public ParticleAPI(Avatar owner) {
@@ -35,9 +51,20 @@ public class ParticleAPI {
         return (ParticleEngineAccessor) Minecraft.getInstance().particleEngine;
     }
 
+    private static ParticleOptions parseOptions(String id) throws CommandSyntaxException {
+        synchronized (OPTIONS_CACHE) {
+            ParticleOptions options = OPTIONS_CACHE.get(id);
+            if (options == null) {
+                options = ParticleArgument.readParticle(new StringReader(id), BuiltInRegistries.PARTICLE_TYPE.asLookup());
+                OPTIONS_CACHE.put(id, options);
+            }
+            return options;
+        }
+    }
+
     private LuaParticle generate(String id, double x, double y, double z, double w, double t, double h) {
         try {
-            ParticleOptions options = ParticleArgument.readParticle(new StringReader(id), BuiltInRegistries.PARTICLE_TYPE.asLookup());
+            ParticleOptions options = parseOptions(id);
             Particle p = getParticleEngine().figura$makeParticle(options, x, y, z, w, t, h);
             if (p == null) throw new LuaError("Could not parse particle \"" + id + "\"");
             return new LuaParticle(id, p, owner);
@@ -89,6 +116,62 @@ public class ParticleAPI {
         return particle;
     }
 
+    @LuaWhitelist
+    @LuaMethodDoc(
+            overloads = {
+                    @LuaMethodOverload(
+                            argumentTypes = {String.class, LuaTable.class},
+                            argumentNames = {"name", "positions"}
+                    ),
+                    @LuaMethodOverload(
+                            argumentTypes = {String.class, LuaTable.class, LuaTable.class},
+                            argumentNames = {"name", "positions", "velocities"}
+                    )
+            },
+            value = "particles.new_particles"
+    )
+    public int newParticles(@LuaNotNil String id, @LuaNotNil LuaTable positions, LuaTable velocities) {
+        ParticleOptions options;
+        try {
+            options = parseOptions(id);
+        } catch (Exception e) {
+            throw new LuaError(e.getMessage());
+        }
+
+        if (Minecraft.getInstance().isPaused())
+            return 0;
+
+        ParticleEngineAccessor engine = getParticleEngine();
+        int count = positions.length();
+        int spawned = 0;
+        for (int i = 1; i <= count; i++) {
+            FiguraVec3 pos = checkVec3(positions.get(i), "positions", i);
+            FiguraVec3 vel = velocities == null || velocities.get(i).isnil() ? null : checkVec3(velocities.get(i), "velocities", i);
+
+            if (!owner.particlesRemaining.use()) {
+                owner.noPermissions.add(Permissions.PARTICLES);
+                break;
+            }
+
+            Particle p = vel == null ? engine.figura$makeParticle(options, pos.x, pos.y, pos.z, 0, 0, 0) : engine.figura$makeParticle(options, pos.x, pos.y, pos.z, vel.x, vel.y, vel.z);
+            if (p == null)
+                throw new LuaError("Could not parse particle \"" + id + "\"");
+
+            engine.figura$spawnParticle(p, owner.owner);
+            spawned++;
+        }
+
+        if (spawned == count)
+            owner.noPermissions.remove(Permissions.PARTICLES);
+        return spawned;
+    }
+
+    private static FiguraVec3 checkVec3(LuaValue value, String table, int index) {
+        if (!value.isuserdata(FiguraVec3.class))
+            throw new LuaError("Illegal argument to " + table + " at index " + index + ": Expected Vector3, recieved " + value.typename() + " (" + value + ")");
+        return (FiguraVec3) value.checkuserdata(FiguraVec3.class);
+    }
+
     @LuaWhitelist
     @LuaMethodDoc("particles.remove_particles")
     public ParticleAPI removeParticles() {
@@ -106,7 +189,7 @@ public class ParticleAPI {
     )
     public boolean isPresent(String id) {
         try {
-            ParticleOptions options = ParticleArgument.readParticle(new StringReader(id), BuiltInRegistries.PARTICLE_TYPE.asLookup());
+            ParticleOptions options = parseOptions(id);
             return getParticleEngine().figura$makeParticle(options, 0, 0, 0, 0, 0, 0) != null;
         } catch (Exception ignored) {
             return false;
@@ -1,9 +1,11 @@
 package org.figuramc.figura.lua.api.ping;
 
 import org.figuramc.figura.avatar.Avatar;
+import org.figuramc.figura.backend2.websocket.C2SMessageHandler;
 import org.figuramc.figura.lua.LuaNotNil;
 import org.figuramc.figura.lua.LuaWhitelist;
 import org.figuramc.figura.lua.docs.LuaTypeDoc;
+import org.luaj.vm2.LuaError;
 import org.luaj.vm2.LuaFunction;
 
 import java.util.HashMap;
@@ -39,6 +41,8 @@ public class PingAPI {
     @LuaWhitelist
     public void __newindex(@LuaNotNil String key, LuaFunction value) {
         int id = (key.hashCode() + 1) * 31;
+        if (id == C2SMessageHandler.PING_BATCH)
+            throw new LuaError("Ping name \"" + key + "\" is reserved, use another name");
         if (value == null) {
             map.remove(key);
             idMap.remove(id);
@@ -2,14 +2,22 @@ package org.figuramc.figura.lua.api.ping;
 
 import org.figuramc.figura.FiguraMod;
 import org.figuramc.figura.avatar.Avatar;
+import org.figuramc.figura.config.Configs;
+import org.figuramc.figura.math.matrix.FiguraMat2;
+import org.figuramc.figura.math.matrix.FiguraMat3;
+import org.figuramc.figura.math.matrix.FiguraMat4;
 import org.figuramc.figura.math.matrix.FiguraMatrix;
+import org.figuramc.figura.math.vector.FiguraVec2;
+import org.figuramc.figura.math.vector.FiguraVec3;
+import org.figuramc.figura.math.vector.FiguraVec4;
 import org.figuramc.figura.math.vector.FiguraVector;
-import org.figuramc.figura.utils.MathUtils;
 import org.luaj.vm2.*;
 
-import java.io.*;
-import java.util.ArrayList;
-import java.util.List;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 public class PingArg {
 
@@ -21,33 +29,54 @@ public class PingArg {
             TABLE = 5,
             VECTOR_2 = 6, VECTOR_3 = 7, VECTOR_4 = 8,
             MATRIX_2 = 9, MATRIX_3 = 10, MATRIX_4 = 11,
-            INT_1B = 12, INT_2B = 13, INT_3B = 14, INT_4B = 15;
+            INT_1B = 12, INT_2B = 13, INT_3B = 14, INT_4B = 15,
+            VECTOR_2F = 16, VECTOR_3F = 17, VECTOR_4F = 18,
+            MATRIX_2F = 19, MATRIX_3F = 20, MATRIX_4F = 21,
+            VECTOR_2H = 22, VECTOR_3H = 23, VECTOR_4H = 24,
+            MATRIX_2H = 25, MATRIX_3H = 26, MATRIX_4H = 27;
+
+    // vector and matrix component encodings
+    public static final int
+            ENCODING_DOUBLE = 0,
+            ENCODING_FLOAT = 1,
+            ENCODING_HALF = 2;
+
+    // pings are written from the main thread, so the buffer is reused between them
+    private static final ByteArrayOutputStream BUFFER = new ByteArrayOutputStream();
+    private static final DataOutputStream DATA = new DataOutputStream(BUFFER);
 
     private final Varargs args;
+    private final int encoding;
 
     public PingArg(Varargs args) {
+        this(args, Configs.PING_ENCODING.value);
+    }
+
+    public PingArg(Varargs args, int encoding) {
         this.args = args;
+        this.encoding = encoding;
     }
 
     // -- writing -- // 
 
     public byte[] toByteArray() {
-        try {
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            DataOutputStream dos = new DataOutputStream(baos);
-
-            for (int i = 0; i < args.narg(); i++) {
-                LuaValue arg = args.arg(i + 1);
-                writeArg(arg, dos);
+        synchronized (BUFFER) {
+            try {
+                BUFFER.reset();
+
+                for (int i = 0; i < args.narg(); i++) {
+                    LuaValue arg = args.arg(i + 1);
+                    writeArg(arg, DATA);
+                }
+
+                return BUFFER.toByteArray();
+            } catch (Exception e) {
+                throw new LuaError("Failed to write ping! " + e.getMessage());
             }
-
-            return baos.toByteArray();
-        } catch (Exception e) {
-            throw new LuaError("Failed to write ping! " + e.getMessage());
         }
     }
 
-    private static void writeArg(LuaValue val, DataOutputStream dos) throws IOException {
+    private void writeArg(LuaValue val, DataOutputStream dos) throws IOException {
         if (val.isboolean()) {
             writeBool(val.checkboolean(), dos);
         } else if (val instanceof LuaString valStr) {
@@ -98,7 +127,7 @@ public class PingArg {
         string.write(dos, 0, strLen);
     }
 
-    private static void writeTable(LuaTable table, DataOutputStream dos) throws IOException {
+    private void writeTable(LuaTable table, DataOutputStream dos) throws IOException {
         writeInt(table.keyCount(), dos);
 
         for (LuaValue key : table.keys()) {
@@ -107,118 +136,209 @@ public class PingArg {
         }
     }
 
-    private static void writeVec(FiguraVector<?, ?> vector, DataOutputStream dos) throws IOException {
-        dos.writeByte(switch (vector.size()) {
-            case 2 -> VECTOR_2;
-            case 3 -> VECTOR_3;
-            case 4 -> VECTOR_4;
-            default -> throw new UnsupportedOperationException("Cannot write ping for vector size of " + vector.size());
-        });
+    private void writeVec(FiguraVector<?, ?> vector, DataOutputStream dos) throws IOException {
+        int size = vector.size();
+        if (size < 2 || size > 4)
+            throw new UnsupportedOperationException("Cannot write ping for vector size of " + size);
+
+        dos.writeByte(switch (encoding) {
+            case ENCODING_FLOAT -> VECTOR_2F;
+            case ENCODING_HALF -> VECTOR_2H;
+            default -> VECTOR_2;
+        } + size - 2);
 
-        for (int i = 0; i < vector.size(); i++)
-            dos.writeDouble(vector.index(i));
+        for (int i = 0; i < size; i++)
+            writeComponent(vector.index(i), dos);
     }
 
-    private static void writeMat(FiguraMatrix<?, ?> matrix, DataOutputStream dos) throws IOException {
-        dos.writeByte(switch (matrix.cols()) {
-            case 2 -> MATRIX_2;
-            case 3 -> MATRIX_3;
-            case 4 -> MATRIX_4;
-            default -> throw new UnsupportedOperationException("Cannot write ping for matrix column of size " + matrix.cols());
-        });
+    private void writeMat(FiguraMatrix<?, ?> matrix, DataOutputStream dos) throws IOException {
+        int size = matrix.cols();
+        if (size < 2 || size > 4)
+            throw new UnsupportedOperationException("Cannot write ping for matrix column of size " + size);
 
-        for (int i = 0; i < matrix.cols(); i++) {
+        dos.writeByte(switch (encoding) {
+            case ENCODING_FLOAT -> MATRIX_2F;
+            case ENCODING_HALF -> MATRIX_2H;
+            default -> MATRIX_2;
+        } + size - 2);
+
+        for (int i = 0; i < size; i++) {
             FiguraVector<?, ?> vec = matrix.getColumn(i + 1);
-            for (int o = 0; o < matrix.cols(); o++) {
-                dos.writeDouble(vec.index(o));
+            for (int o = 0; o < size; o++) {
+                writeComponent(vec.index(o), dos);
             }
         }
     }
 
+    private void writeComponent(double value, DataOutputStream dos) throws IOException {
+        switch (encoding) {
+            case ENCODING_FLOAT -> dos.writeFloat((float) value);
+            case ENCODING_HALF -> dos.writeShort(toHalf((float) value));
+            default -> dos.writeDouble(value);
+        }
+    }
+
+    // IEEE 754 binary16 conversion, rounding to nearest
+    private static short toHalf(float value) {
+        int bits = Float.floatToIntBits(value);
+        int sign = bits >>> 16 & 0x8000;
+        int val = (bits & 0x7FFFFFFF) + 0x1000;
+
+        // NaN, infinity or too big
+        if (val >= 0x47800000) {
+            if ((bits & 0x7FFFFFFF) >= 0x47800000) {
+                if (val < 0x7F800000)
+                    return (short) (sign | 0x7C00);
+                return (short) (sign | 0x7C00 | (bits & 0x007FFFFF) >>> 13);
+            }
+            return (short) (sign | 0x7BFF);
+        }
+
+        // normal
+        if (val >= 0x38800000)
+            return (short) (sign | val - 0x38000000 >>> 13);
+
+        // too small
+        if (val < 0x33000000)
+            return (short) sign;
+
+        // subnormal
+        val = (bits & 0x7FFFFFFF) >>> 23;
+        return (short) (sign | ((bits & 0x7FFFFF | 0x800000) + (0x800000 >>> val - 102) >>> 126 - val));
+    }
+
+    private static float fromHalf(int half) {
+        int mantissa = half & 0x03FF;
+        int exponent = half & 0x7C00;
+
+        if (exponent == 0x7C00) {
+            exponent = 0x3FC00;
+        } else if (exponent != 0) {
+            exponent += 0x1C000;
+        } else if (mantissa != 0) {
+            exponent = 0x1C400;
+            do {
+                mantissa <<= 1;
+                exponent -= 0x400;
+            } while ((mantissa & 0x400) == 0);
+            mantissa &= 0x3FF;
+        }
+
+        return Float.intBitsToFloat((half & 0x8000) << 16 | (exponent | mantissa) << 13);
+    }
+
     // -- reading -- // 
 
-    public static LuaValue[] fromByteArray(byte[] bytes, Avatar owner) {
-        try {
-            DataInputStream dis = new DataInputStream(new ByteArrayInputStream(bytes));
+    // decoded args of the current ping, pings are only read from the main thread
+    private static LuaValue[] scratch = new LuaValue[8];
+    private static final double[] MATRIX = new double[16];
 
-            List<LuaValue> luaValues = new ArrayList<>();
-            while (dis.available() > 0)
-                luaValues.add(readArg(dis, owner));
+    public static Varargs fromByteBuffer(ByteBuffer buffer, Avatar owner) {
+        int count = 0;
+        try {
+            while (buffer.hasRemaining()) {
+                if (count == scratch.length)
+                    scratch = Arrays.copyOf(scratch, count * 2);
+                scratch[count++] = readArg(buffer, owner);
+            }
 
-            return luaValues.toArray(new LuaValue[0]);
+            return switch (count) {
+                case 0 -> LuaValue.NONE;
+                case 1 -> scratch[0];
+                default -> LuaValue.varargsOf(Arrays.copyOf(scratch, count));
+            };
         } catch (Exception e) {
             FiguraMod.LOGGER.warn("Failed to read " + owner.owner + " ping!", e);
             return null;
+        } finally {
+            Arrays.fill(scratch, 0, count, null);
         }
     }
 
-    private static LuaValue readArg(DataInputStream dis, Avatar owner) throws IOException {
-        byte type = dis.readByte();
+    private static LuaValue readArg(ByteBuffer buffer, Avatar owner) {
+        byte type = buffer.get();
 
         return switch (type) {
             case BOOL_TRUE -> LuaValue.valueOf(true);
             case BOOL_FALSE -> LuaValue.valueOf(false);
-            case INT_1B, INT_2B, INT_3B, INT_4B -> LuaValue.valueOf(readInt(dis, type));
-            case DOUBLE -> LuaValue.valueOf(dis.readDouble());
-            case STRING -> LuaValue.valueOf(dis.readNBytes(dis.readUnsignedShort()));
-            case TABLE -> readTable(dis, owner);
-            case VECTOR_2, VECTOR_3, VECTOR_4 -> owner.luaRuntime.typeManager.javaToLua(readVec(dis, type)).arg1();
-            case MATRIX_2, MATRIX_3, MATRIX_4 -> owner.luaRuntime.typeManager.javaToLua(readMat(dis, type)).arg1();
+            case INT_1B, INT_2B, INT_3B, INT_4B -> LuaValue.valueOf(readInt(buffer, type));
+            case DOUBLE -> LuaValue.valueOf(buffer.getDouble());
+            case STRING -> readString(buffer);
+            case TABLE -> readTable(buffer, owner);
+            case VECTOR_2, VECTOR_3, VECTOR_4 -> owner.luaRuntime.typeManager.javaToLua(readVec(buffer, type - VECTOR_2 + 2, ENCODING_DOUBLE)).arg1();
+            case VECTOR_2F, VECTOR_3F, VECTOR_4F -> owner.luaRuntime.typeManager.javaToLua(readVec(buffer, type - VECTOR_2F + 2, ENCODING_FLOAT)).arg1();
+            case VECTOR_2H, VECTOR_3H, VECTOR_4H -> owner.luaRuntime.typeManager.javaToLua(readVec(buffer, type - VECTOR_2H + 2, ENCODING_HALF)).arg1();
+            case MATRIX_2, MATRIX_3, MATRIX_4 -> owner.luaRuntime.typeManager.javaToLua(readMat(buffer, type - MATRIX_2 + 2, ENCODING_DOUBLE)).arg1();
+            case MATRIX_2F, MATRIX_3F, MATRIX_4F -> owner.luaRuntime.typeManager.javaToLua(readMat(buffer, type - MATRIX_2F + 2, ENCODING_FLOAT)).arg1();
+            case MATRIX_2H, MATRIX_3H, MATRIX_4H -> owner.luaRuntime.typeManager.javaToLua(readMat(buffer, type - MATRIX_2H + 2, ENCODING_HALF)).arg1();
             default -> LuaValue.NIL;
         };
     }
 
-    private static int readInt(DataInputStream dis, byte type) throws IOException {
+    private static int readInt(ByteBuffer buffer, byte type) {
         return switch (type) {
-            case INT_1B -> dis.readByte();
-            case INT_2B -> dis.readShort();
-            case INT_3B -> (int) dis.readShort() << 8 | dis.readByte() & 0xFF;
-            case INT_4B -> dis.readInt();
+            case INT_1B -> buffer.get();
+            case INT_2B -> buffer.getShort();
+            case INT_3B -> (int) buffer.getShort() << 8 | buffer.get() & 0xFF;
+            case INT_4B -> buffer.getInt();
             default -> 0;
         };
     }
 
-    private static LuaValue readTable(DataInputStream dis, Avatar owner) throws IOException {
-        int size = readInt(dis, dis.readByte());
-        LuaTable table = new LuaTable();
+    private static LuaString readString(ByteBuffer buffer) {
+        int length = buffer.getShort() & 0xFFFF;
+        int start = buffer.position();
+        buffer.position(start + length);
 
-        for (int i = 0; i < size; i++)
-            table.set(readArg(dis, owner), readArg(dis, owner));
+        // the string shares the message array instead of copying it
+        if (buffer.hasArray())
+            return LuaString.valueUsing(buffer.array(), buffer.arrayOffset() + start, length);
 
-        return table;
+        byte[] bytes = new byte[length];
+        buffer.get(start, bytes);
+        return LuaString.valueUsing(bytes);
     }
 
-    private static FiguraVector<?, ?> readVec(DataInputStream dis, byte type) throws IOException {
-        byte size = switch (type) {
-            case VECTOR_2 -> 2;
-            case VECTOR_3 -> 3;
-            case VECTOR_4 -> 4;
-            default -> throw new UnsupportedOperationException("Cannot read vector of unknown type " + type);
-        };
+    private static LuaValue readTable(ByteBuffer buffer, Avatar owner) {
+        int size = readInt(buffer, buffer.get());
+
+        // every entry takes at least two bytes, so a bogus size cannot presize a huge table
+        LuaTable table = new LuaTable(0, Math.max(Math.min(size, buffer.remaining() / 2), 0));
 
-        double[] array = new double[size];
         for (int i = 0; i < size; i++)
-            array[i] = dis.readDouble();
+            table.set(readArg(buffer, owner), readArg(buffer, owner));
 
-        return MathUtils.sizedVector(array);
+        return table;
     }
 
-    private static FiguraMatrix<?, ?> readMat(DataInputStream dis, byte type) throws IOException {
-        byte size = switch (type) {
-            case MATRIX_2 -> 2;
-            case MATRIX_3 -> 3;
-            case MATRIX_4 -> 4;
-            default -> throw new UnsupportedOperationException("Cannot read matrix of unknown type " + type);
+    private static FiguraVector<?, ?> readVec(ByteBuffer buffer, int size, int encoding) {
+        return switch (size) {
+            case 2 -> FiguraVec2.of(readComponent(buffer, encoding), readComponent(buffer, encoding));
+            case 3 -> FiguraVec3.of(readComponent(buffer, encoding), readComponent(buffer, encoding), readComponent(buffer, encoding));
+            case 4 -> FiguraVec4.of(readComponent(buffer, encoding), readComponent(buffer, encoding), readComponent(buffer, encoding), readComponent(buffer, encoding));
+            default -> throw new UnsupportedOperationException("Cannot read vector of size " + size);
         };
+    }
 
-        FiguraVector<?, ?>[] vectors = new FiguraVector[size];
-        for (int i = 0; i < size; i++) {
-            double[] array = new double[size];
-            for (int o = 0; o < size; o++)
-                array[o] = dis.readDouble();
-            vectors[i] = MathUtils.sizedVector(array);
-        }
+    private static FiguraMatrix<?, ?> readMat(ByteBuffer buffer, int size, int encoding) {
+        // column major, like the writer
+        double[] m = MATRIX;
+        for (int i = 0; i < size * size; i++)
+            m[i] = readComponent(buffer, encoding);
+
+        return switch (size) {
+            case 2 -> FiguraMat2.of(m[0], m[1], m[2], m[3]);
+            case 3 -> FiguraMat3.of(m[0], m[1], m[2], m[3], m[4], m[5], m[6], m[7], m[8]);
+            case 4 -> FiguraMat4.of(m[0], m[1], m[2], m[3], m[4], m[5], m[6], m[7], m[8], m[9], m[10], m[11], m[12], m[13], m[14], m[15]);
+            default -> throw new UnsupportedOperationException("Cannot read matrix of size " + size);
+        };
+    }
 
-        return MathUtils.sizedMat(vectors);
+    private static double readComponent(ByteBuffer buffer, int encoding) {
+        return switch (encoding) {
+            case ENCODING_FLOAT -> buffer.getFloat();
+            case ENCODING_HALF -> fromHalf(buffer.getShort() & 0xFFFF);
+            default -> buffer.getDouble();
+        };
     }
 }
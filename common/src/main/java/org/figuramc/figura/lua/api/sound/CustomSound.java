@@ -0,0 +1,145 @@
+package org.figuramc.figura.lua.api.sound;
+
+import com.mojang.blaze3d.audio.OggAudioStream;
+import com.mojang.blaze3d.audio.SoundBuffer;
+import net.minecraft.Util;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.sounds.AudioStream;
+import net.minecraft.client.sounds.LoopingAudioStream;
+import org.figuramc.figura.FiguraMod;
+import org.figuramc.figura.avatar.Avatar;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * A custom sound from an avatar, kept as the compressed ogg bytes
+ * the pcm is only decoded, in the background, when the sound is first played
+ * decoded sounds share a global size cap, where the least recently played ones are released first
+ * and long sounds are never fully decoded, being streamed from the ogg instead
+ */
+public class CustomSound {
+
+    // max decoded pcm kept across all avatars
+    private static final long MAX_DECODED_BYTES = 64L * 1024 * 1024;
+    // compressed size from where sounds are streamed, roughly 10 seconds of audio
+    private static final int STREAM_THRESHOLD = 160 * 1024;
+
+    private static final LinkedHashMap<CustomSound, Integer> DECODED = new LinkedHashMap<>(16, 0.75f, true);
+    private static long decodedBytes;
+
+    private final Avatar owner;
+    private final String name;
+    private final byte[] data;
+
+    private CompletableFuture<SoundBuffer> buffer;
+    private int generation;
+
+    public CustomSound(Avatar owner, String name, byte[] data) throws IOException {
+        this.owner = owner;
+        this.name = name;
+        this.data = data;
+
+        // only read the header, so invalid sounds still fail when they are added
+        try (OggAudioStream stream = new OggAudioStream(new ByteArrayInputStream(data))) {
+            stream.getFormat();
+        }
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    public boolean shouldStream() {
+        return data.length > STREAM_THRESHOLD;
+    }
+
+    public CompletableFuture<SoundBuffer> getBuffer() {
+        synchronized (DECODED) {
+            if (buffer == null) {
+                int gen = generation;
+                buffer = CompletableFuture.supplyAsync(() -> decode(gen), Util.backgroundExecutor());
+            } else {
+                // touch it, so it is the last to be released
+                DECODED.get(this);
+            }
+            return buffer;
+        }
+    }
+
+    public CompletableFuture<AudioStream> getStream(boolean loop) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                ByteArrayInputStream inputStream = new ByteArrayInputStream(data);
+                return loop ? new LoopingAudioStream(OggAudioStream::new, inputStream) : new OggAudioStream(inputStream);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, Util.backgroundExecutor());
+    }
+
+    private SoundBuffer decode(int gen) {
+        try (OggAudioStream stream = new OggAudioStream(new ByteArrayInputStream(data))) {
+            ByteBuffer pcm = stream.readAll();
+            int size = pcm.remaining();
+            SoundBuffer sound = new SoundBuffer(pcm, stream.getFormat());
+            cache(gen, size);
+            return sound;
+        } catch (IOException e) {
+            FiguraMod.LOGGER.warn("Failed to decode custom sound \"" + name + "\"", e);
+            throw new CompletionException(e);
+        }
+    }
+
+    private void cache(int gen, int size) {
+        List<CompletableFuture<SoundBuffer>> released = new ArrayList<>();
+        synchronized (DECODED) {
+            // unloaded while decoding
+            if (gen != generation)
+                return;
+
+            DECODED.put(this, size);
+            decodedBytes += size;
+
+            // release the least recently played sounds, unless they are still in use
+            Iterator<Map.Entry<CustomSound, Integer>> iterator = DECODED.entrySet().iterator();
+            while (decodedBytes > MAX_DECODED_BYTES && iterator.hasNext()) {
+                Map.Entry<CustomSound, Integer> entry = iterator.next();
+                CustomSound sound = entry.getKey();
+                if (sound == this || SoundAPI.getSoundEngine().figura$isUsingSound(sound.owner.owner, sound.name))
+                    continue;
+
+                iterator.remove();
+                decodedBytes -= entry.getValue();
+                released.add(sound.buffer);
+                sound.buffer = null;
+                sound.generation++;
+            }
+        }
+
+        for (CompletableFuture<SoundBuffer> future : released)
+            Minecraft.getInstance().execute(() -> future.join().releaseAlBuffer());
+    }
+
+    /**
+     * Releases the decoded data, if any, the sound will be decoded again when played
+     */
+    public void unload() {
+        CompletableFuture<SoundBuffer> released;
+        synchronized (DECODED) {
+            Integer size = DECODED.remove(this);
+            if (size != null)
+                decodedBytes -= size;
+            released = size != null ? buffer : null;
+            buffer = null;
+            generation++;
+        }
+
+        if (released != null)
+            released.join().releaseAlBuffer();
+    }
+}
@@ -2,8 +2,9 @@ package org.figuramc.figura.lua.api.sound;
 
 import com.mojang.blaze3d.audio.Channel;
 import com.mojang.blaze3d.audio.Library;
-import com.mojang.blaze3d.audio.SoundBuffer;
+import net.minecraft.client.Minecraft;
 import net.minecraft.client.resources.sounds.Sound;
+import net.minecraft.client.sounds.AudioStream;
 import net.minecraft.client.sounds.ChannelAccess;
 import net.minecraft.client.sounds.SoundBufferLibrary;
 import net.minecraft.network.chat.Component;
@@ -21,6 +22,13 @@ import org.figuramc.figura.utils.LuaUtils;
 import org.figuramc.figura.utils.TextUtils;
 import org.luaj.vm2.LuaError;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
 @LuaWhitelist
 @LuaTypeDoc(
         name = "Sound",
@@ -30,11 +38,15 @@ public class LuaSound {
 
     private final Avatar owner;
     private final String id;
-    private final SoundBuffer buffer;
+    private final CustomSound custom;
     private final Sound sound;
 
     private ChannelAccess.ChannelHandle handle;
+    private Object session;
+    private final List<Consumer<Channel>> queued = new ArrayList<>();
     private boolean playing = false;
+    // if the sound data was attached to the channel, and if the channel was started since, both only for the current session
+    private boolean attached, started;
 
     private FiguraVec3 pos = FiguraVec3.of();
     private float pitch = 1f;
@@ -44,18 +56,18 @@ public class LuaSound {
     private Component subtitleText;
     private String subtitle;
 
-    public LuaSound(SoundBuffer buffer, String id, Avatar owner) {
-        this(null, buffer, id, Component.literal(id), owner);
+    public LuaSound(CustomSound custom, String id, Avatar owner) {
+        this(null, custom, id, Component.literal(id), owner);
     }
 
     public LuaSound(Sound sound, String id, Component subtitle, Avatar owner) {
         this(sound, null, id, subtitle, owner);
     }
 
-    private LuaSound(Sound sound, SoundBuffer buffer, String id, Component subtitle, Avatar owner) {
+    private LuaSound(Sound sound, CustomSound custom, String id, Component subtitle, Avatar owner) {
         this.owner = owner;
         this.id = id;
-        this.buffer = buffer;
+        this.custom = custom;
         this.sound = sound;
         this.subtitleText = subtitle;
         this.subtitle = subtitle == null ? null : subtitle.getString();
@@ -65,6 +77,15 @@ public class LuaSound {
         return handle;
     }
 
+    public Avatar getOwner() {
+        return owner;
+    }
+
+    // the sound was played, but its channel was not acquired yet
+    public boolean isPending() {
+        return session != null && handle == null;
+    }
+
     public Component getSubtitleText() {
         return subtitleText;
     }
@@ -81,7 +102,7 @@ public class LuaSound {
     @LuaMethodDoc("sound.play")
     public LuaSound play() {
         // Only skip logic when we truely know the sound is currently playing
-        if (this.playing && this.handle != null && !this.handle.isStopped())
+        if (this.playing && (isPending() || this.handle != null && !this.handle.isStopped()))
             return this;
 
         if (!owner.soundsRemaining.use()) {
@@ -95,17 +116,25 @@ public class LuaSound {
         // This occurs when sounds naturally stops
         if (this.handle != null && this.handle.isStopped()) {
             this.handle = null;
+            this.session = null;
         }
 
-        // if handle exists, the sound was previously played. Unpause it
-        if (handle != null) {
-            handle.execute(Channel::unpause);
+        // if handle exists, or is still being acquired, the sound was previously played. Unpause it
+        // when it was paused before its data arrived, it was never started, so start it now
+        // and when the data did not arrive yet, it is started once attached
+        if (session != null) {
+            if (started) {
+                execute(Channel::unpause);
+            } else if (attached) {
+                execute(Channel::play);
+                started = true;
+            }
             this.playing = true;
             return this;
         }
 
         // if there is no sound data, exit early
-        if (buffer == null && sound == null)
+        if (custom == null && sound == null)
             return this;
 
         float vol = calculateVolume();
@@ -139,60 +168,97 @@ public class LuaSound {
             return this;
         }
 
-        if (buffer != null)
-            this.handle = SoundAPI.getSoundEngine().figura$createHandle(owner.owner, id, Library.Pool.STATIC);
-        else
-            this.handle = SoundAPI.getSoundEngine().figura$createHandle(owner.owner, id, sound.shouldStream() ? Library.Pool.STREAMING : Library.Pool.STATIC);
-
-        // I dunno why this check was here in the first place and I aint about to ruin things by removing it.
-        if (handle == null) {
-            this.playing = false; // explicit set just incase
-            return this;
-        }
+        boolean stream = custom != null ? custom.shouldStream() : sound.shouldStream();
+        acquire(stream ? Library.Pool.STREAMING : Library.Pool.STATIC);
 
         SoundAPI.getSoundEngine().figura$addSound(this);
 
-        if (buffer != null) {
-            handle.execute(channel -> {
-                channel.setPitch(pitch);
-                channel.setVolume(volume * vol);
-                channel.linearAttenuation(attenuation * 16f);
-                channel.setLooping(loop);
-                channel.setSelfPosition(pos.asVec3());
-                channel.setRelative(false);
-                channel.attachStaticBuffer(buffer);
-                channel.play();
-            });
-        } else {
-            handle.execute(channel -> {
-                channel.setPitch(pitch);
-                channel.setVolume(volume * vol);
-                channel.linearAttenuation(attenuation * 16f);
-                channel.setLooping(loop && !sound.shouldStream());
-                channel.setSelfPosition(pos.asVec3());
-                channel.setRelative(false);
-            });
+        execute(channel -> {
+            channel.setPitch(pitch);
+            channel.setVolume(volume * vol);
+            channel.linearAttenuation(attenuation * 16f);
+            channel.setLooping(loop && !stream);
+            channel.setSelfPosition(pos.asVec3());
+            channel.setRelative(false);
+        });
 
+        // custom sounds are decoded in the background, so both them and the vanilla ones are attached when ready
+        if (custom != null) {
+            if (!stream)
+                attach(custom.getBuffer(), Channel::attachStaticBuffer);
+            else
+                attach(custom.getStream(loop), Channel::attachBufferStream);
+        } else {
             SoundBufferLibrary lib = SoundAPI.getSoundEngine().figura$getSoundBuffers();
-            if (!sound.shouldStream()) {
-                lib.getCompleteBuffer(sound.getPath()).thenAccept(buffer -> handle.execute(channel -> {
-                    channel.attachStaticBuffer(buffer);
-                    channel.play();
-                }));
-            } else {
-                lib.getStream(sound.getPath(), loop).thenAccept(stream -> handle.execute(channel -> {
-                    channel.attachBufferStream(stream);
-                    channel.play();
-                }));
-            }
+            if (!stream)
+                attach(lib.getCompleteBuffer(sound.getPath()), Channel::attachStaticBuffer);
+            else
+                attach(lib.getStream(sound.getPath(), loop), Channel::attachBufferStream);
         }
 
         return this;
     }
 
+    // requests a channel without blocking, the channel commands are queued until it is ready
+    private void acquire(Library.Pool pool) {
+        Object token = session = new Object();
+        attached = started = false;
+        SoundAPI.getSoundEngine().figura$createHandle(owner.owner, id, pool).thenAcceptAsync(handle -> {
+            // stopped while acquiring
+            if (session != token) {
+                if (handle != null)
+                    handle.execute(Channel::stop);
+                return;
+            }
+
+            // no free channels
+            if (handle == null) {
+                stop();
+                return;
+            }
+
+            this.handle = handle;
+            for (Consumer<Channel> action : queued)
+                handle.execute(action);
+            queued.clear();
+        }, Minecraft.getInstance());
+    }
+
+    private <T> void attach(CompletableFuture<T> data, BiConsumer<Channel, T> action) {
+        Object token = session;
+        data.thenAcceptAsync(t -> {
+            if (session == token) {
+                // paused, or muted, before the data arrived, so only start once play is called again
+                boolean play = this.playing;
+                execute(channel -> {
+                    action.accept(channel, t);
+                    if (play)
+                        channel.play();
+                });
+                attached = true;
+                started = play;
+            } else if (t instanceof AudioStream stream) {
+                try {
+                    stream.close();
+                } catch (IOException ignored) {}
+            }
+        }, Minecraft.getInstance());
+    }
+
+    private void execute(Consumer<Channel> action) {
+        if (handle != null)
+            handle.execute(action);
+        else if (session != null)
+            queued.add(action);
+    }
+
     @LuaWhitelist
     @LuaMethodDoc("sound.is_playing")
     public boolean isPlaying() {
+        // waiting for a channel or for the sound data, keep the current state
+        if (isPending() || session != null && !attached)
+            return this.playing;
+
         if (handle != null) {
             // If the handle was released via the sound stopping naturlly, force set to false.
             // When a handle is stopped, it has no channel, so playing will not update.
@@ -212,8 +278,7 @@ public class LuaSound {
     @LuaMethodDoc("sound.pause")
     public LuaSound pause() {
         this.playing = false;
-        if (handle != null)
-            handle.execute(Channel::pause);
+        execute(Channel::pause);
         return this;
     }
 
@@ -224,6 +289,8 @@ public class LuaSound {
         if (handle != null)
             handle.execute(Channel::stop);
         handle = null;
+        session = null;
+        queued.clear();
         return this;
     }
 
@@ -249,8 +316,7 @@ public class LuaSound {
             value = "sound.set_pos")
     public LuaSound setPos(Object x, Double y, Double z) {
         this.pos = LuaUtils.parseVec3("setPos", x, y, z);
-        if (handle != null)
-            handle.execute(channel -> channel.setSelfPosition(pos.asVec3()));
+        execute(channel -> channel.setSelfPosition(pos.asVec3()));
         return this;
     }
 
@@ -275,15 +341,17 @@ public class LuaSound {
             value = "sound.set_volume")
     public LuaSound setVolume(float volume) {
         this.volume = Math.min(volume, 1);
-        if (handle != null)
-            handle.execute(channel -> {
-                float f = calculateVolume();
-                if (f <= 0) {
-                    channel.stop();
-                } else {
-                    channel.setVolume(this.volume * f);
-                }
-            });
+        float f = calculateVolume();
+        // a muted sound is stopped, so it must not be started when its data arrives later
+        if (f <= 0)
+            this.playing = false;
+        execute(channel -> {
+            if (f <= 0) {
+                channel.stop();
+            } else {
+                channel.setVolume(this.volume * f);
+            }
+        });
         return this;
     }
 
@@ -308,8 +376,7 @@ public class LuaSound {
             value = "sound.set_attenuation")
     public LuaSound setAttenuation(float attenuation) {
         this.attenuation = Math.max(attenuation, 1);
-        if (handle != null)
-            handle.execute(channel -> channel.linearAttenuation(this.attenuation * 16f));
+        execute(channel -> channel.linearAttenuation(this.attenuation * 16f));
         return this;
     }
 
@@ -334,8 +401,7 @@ public class LuaSound {
             value = "sound.set_pitch")
     public LuaSound setPitch(float pitch) {
         this.pitch = Math.max(pitch, 0);
-        if (handle != null)
-            handle.execute(channel -> channel.setPitch(this.pitch));
+        execute(channel -> channel.setPitch(this.pitch));
         return this;
     }
 
@@ -360,8 +426,7 @@ public class LuaSound {
             value = "sound.set_loop")
     public LuaSound setLoop(boolean loop) {
         this.loop = loop;
-        if (handle != null)
-            handle.execute(channel -> channel.setLooping(this.loop));
+        execute(channel -> channel.setLooping(this.loop));
         return this;
     }
 
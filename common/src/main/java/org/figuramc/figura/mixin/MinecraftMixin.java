@@ -18,6 +18,8 @@ import org.figuramc.figura.gui.FiguraToast;
 import org.figuramc.figura.gui.PopupMenu;
 import org.figuramc.figura.gui.screens.WardrobeScreen;
 import org.figuramc.figura.lua.FiguraLuaPrinter;
+import org.figuramc.figura.lua.api.RaycastAPI;
+import org.figuramc.figura.lua.api.nameplate.NameplateCache;
 import org.figuramc.figura.utils.FiguraText;
 import org.jetbrains.annotations.Nullable;
 import org.spongepowered.asm.mixin.Final;
@@ -129,6 +131,9 @@ public abstract class MinecraftMixin {
         AvatarManager.clearAllAvatars();
         FiguraLuaPrinter.clearPrintQueue();
         NetworkStuff.unsubscribeAll();
+        RaycastAPI.clearMarker();
+        NameplateCache.ENTITY.clear();
+        NameplateCache.LIST.clear();
     }
 
     @Inject(at = @At("RETURN"), method = "setLevel")
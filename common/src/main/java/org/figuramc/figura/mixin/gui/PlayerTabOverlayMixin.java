@@ -9,6 +9,7 @@ import org.figuramc.figura.avatar.Avatar;
 import org.figuramc.figura.avatar.AvatarManager;
 import org.figuramc.figura.avatar.Badges;
 import org.figuramc.figura.config.Configs;
+import org.figuramc.figura.lua.api.nameplate.NameplateCache;
 import org.figuramc.figura.lua.api.nameplate.NameplateCustomization;
 import org.figuramc.figura.permissions.Permissions;
 import org.figuramc.figura.utils.TextUtils;
@@ -36,25 +37,32 @@ public class PlayerTabOverlayMixin {
 
         // apply customization
         Component text = cir.getReturnValue();
-        Component name = Component.literal(playerInfo.getProfile().getName());
+        String playerName = playerInfo.getProfile().getName();
 
         UUID uuid = playerInfo.getProfile().getId();
         Avatar avatar = AvatarManager.getAvatarForPlayer(uuid);
         NameplateCustomization custom = avatar == null || avatar.luaRuntime == null ? null : avatar.luaRuntime.nameplate.LIST;
+        Component json = custom != null && custom.getJson() != null && avatar.permissions.get(Permissions.NAMEPLATE_EDIT) == 1 ? custom.getJson() : null;
 
-        Component replacement = custom != null && custom.getJson() != null && avatar.permissions.get(Permissions.NAMEPLATE_EDIT) == 1 ?
-                TextUtils.replaceInText(custom.getJson().copy(), "\n|\\\\n", " ") : name;
+        // badges
+        Component badges = config > 1 ? Badges.fetchBadges(uuid) : Component.empty();
 
-        // name
-        replacement = TextUtils.replaceInText(replacement, "\\$\\{name\\}", name);
+        // the final text only changes when any of its parts does
+        text = NameplateCache.LIST.get(uuid, text, json, playerName, badges, config, () -> {
+            Component name = Component.literal(playerName);
+            Component replacement = json != null ? TextUtils.replaceInText(json.copy(), "\n|\\\\n", " ") : name;
 
-        // badges
-        replacement = Badges.appendBadges(replacement, uuid, config > 1);
+            // name
+            replacement = TextUtils.replaceInText(replacement, "\\$\\{name\\}", name);
+
+            // badges
+            replacement = Badges.appendBadges(replacement, badges);
 
-        // trim
-        replacement = TextUtils.trim(replacement);
+            // trim
+            replacement = TextUtils.trim(replacement);
 
-        text = TextUtils.replaceInText(text, "\\b" + Pattern.quote(playerInfo.getProfile().getName()) + "\\b", replacement);
+            return TextUtils.replaceInText(cir.getReturnValue(), "\\b" + Pattern.quote(playerName) + "\\b", replacement);
+        });
 
         cir.setReturnValue(text);
     }
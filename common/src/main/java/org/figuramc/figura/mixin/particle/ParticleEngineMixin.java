@@ -26,11 +26,20 @@ public abstract class ParticleEngineMixin implements ParticleEngineAccessor {
     @Shadow public abstract void add(Particle particle);
 
     @Unique private final HashMap<Particle, UUID> particleMap = new HashMap<>();
+    @Unique private final HashMap<UUID, Set<Particle>> ownerParticles = new HashMap<>();
 
     // This fixes a conflict with Optifine having slightly different args + it should be more stable in general, capturing Locals is bad practice
     @ModifyVariable(method = "tickParticleList", at = @At(value = "INVOKE", target = "Ljava/util/Iterator;remove()V", ordinal = 0))
     private Particle tickParticleList(Particle particle) {
-        particleMap.remove(particle);
+        UUID owner = particleMap.remove(particle);
+        if (owner != null) {
+            Set<Particle> particles = ownerParticles.get(owner);
+            if (particles != null) {
+                particles.remove(particle);
+                if (particles.isEmpty())
+                    ownerParticles.remove(owner);
+            }
+        }
         return particle;
     }
 
@@ -42,19 +51,27 @@ public abstract class ParticleEngineMixin implements ParticleEngineAccessor {
     @Override @Intrinsic
     public void figura$spawnParticle(Particle particle, UUID owner) {
         particleMap.put(particle, owner);
+        ownerParticles.computeIfAbsent(owner, uuid -> new HashSet<>()).add(particle);
         this.add(particle);
     }
 
     @Override @Intrinsic
     public void figura$clearParticles(UUID owner) {
-        Iterator<Map.Entry<Particle, UUID>> iterator = particleMap.entrySet().iterator();
-        while (iterator.hasNext()) {
-            Map.Entry<Particle, UUID> entry = iterator.next();
-            if ((owner == null || entry.getValue().equals(owner))) {
-                if (entry.getKey() != null)
-                    entry.getKey().remove();
-                iterator.remove();
-            }
+        if (owner == null) {
+            for (Particle particle : particleMap.keySet())
+                particle.remove();
+            particleMap.clear();
+            ownerParticles.clear();
+            return;
+        }
+
+        Set<Particle> particles = ownerParticles.remove(owner);
+        if (particles == null)
+            return;
+
+        for (Particle particle : particles) {
+            particle.remove();
+            particleMap.remove(particle);
         }
     }
 
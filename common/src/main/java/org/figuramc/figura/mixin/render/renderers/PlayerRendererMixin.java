@@ -24,6 +24,7 @@ import org.figuramc.figura.config.Configs;
 import org.figuramc.figura.ducks.EntityRendererAccessor;
 import org.figuramc.figura.lua.api.ClientAPI;
 import org.figuramc.figura.lua.api.nameplate.EntityNameplateCustomization;
+import org.figuramc.figura.lua.api.nameplate.NameplateCache;
 import org.figuramc.figura.lua.api.vanilla_model.VanillaPart;
 import org.figuramc.figura.permissions.Permissions;
 import org.figuramc.figura.utils.RenderUtils;
@@ -96,20 +97,29 @@ public abstract class PlayerRendererMixin extends LivingEntityRenderer<AbstractC
         // customization boolean, which also is the permission check
         boolean hasCustom = custom != null && avatar.permissions.get(Permissions.NAMEPLATE_EDIT) == 1;
 
-        Component name = Component.literal(player.getName().getString());
-        FiguraMod.popPushProfiler("text");
-
-        Component replacement = hasCustom && custom.getJson() != null ? custom.getJson().copy() : name;
-
-        // name
-        replacement = TextUtils.replaceInText(replacement, "\\$\\{name\\}", name);
+        String playerName = player.getName().getString();
+        Component json = hasCustom ? custom.getJson() : null;
 
         // badges
         FiguraMod.popPushProfiler("badges");
-        replacement = Badges.appendBadges(replacement, player.getUUID(), config > 1);
+        Component badges = config > 1 ? Badges.fetchBadges(player.getUUID()) : Component.empty();
+
+        // the final text only changes when any of its parts does
+        FiguraMod.popPushProfiler("text");
+        Component original = text;
+        text = NameplateCache.ENTITY.get(player.getUUID(), original, json, playerName, badges, config, () -> {
+            Component name = Component.literal(playerName);
+            Component replacement = json != null ? json.copy() : name;
+
+            // name
+            replacement = TextUtils.replaceInText(replacement, "\\$\\{name\\}", name);
+
+            // badges
+            replacement = Badges.appendBadges(replacement, badges);
 
-        FiguraMod.popPushProfiler("applyName");
-        text = TextUtils.replaceInText(text, "\\b" + Pattern.quote(player.getName().getString()) + "\\b", replacement);
+            FiguraMod.popPushProfiler("applyName");
+            return TextUtils.replaceInText(original, "\\b" + Pattern.quote(playerName) + "\\b", replacement);
+        });
 
         return text;
     }
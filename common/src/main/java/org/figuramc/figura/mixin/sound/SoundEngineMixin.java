@@ -28,6 +28,7 @@ import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 @Mixin(SoundEngine.class)
 public abstract class SoundEngineMixin implements SoundEngineAccessor {
@@ -44,8 +45,9 @@ public abstract class SoundEngineMixin implements SoundEngineAccessor {
 
     @Unique
     private ChannelAccess figuraChannel;
+    // owner -> sound name -> sounds
     @Unique
-    private final List<LuaSound> figuraHandlers = Collections.synchronizedList(new ArrayList<>());
+    private final Map<UUID, Map<String, Set<LuaSound>>> figuraHandlers = new HashMap<>();
 
     @Inject(at = @At("RETURN"), method = "<init>")
     private void soundEngineInit(SoundManager soundManager, Options options, ResourceProvider resourceProvider, CallbackInfo ci) {
@@ -59,17 +61,29 @@ public abstract class SoundEngineMixin implements SoundEngineAccessor {
 
     @Inject(at = @At("RETURN"), method = "tickNonPaused")
     private void tickNonPaused(CallbackInfo ci) {
-        Iterator<LuaSound> iterator = figuraHandlers.iterator();
-        while (iterator.hasNext()) {
-            LuaSound sound = iterator.next();
-            ChannelAccess.ChannelHandle handle = sound.getHandle();
-            if (handle == null) {
-                iterator.remove();
-            } else if (getVolume(SoundSource.PLAYERS) <= 0f) {
-                handle.execute(Channel::stop);
-                iterator.remove();
-            } else if (handle.isStopped()) {
-                iterator.remove();
+        boolean muted = getVolume(SoundSource.PLAYERS) <= 0f;
+        synchronized (figuraHandlers) {
+            Iterator<Map<String, Set<LuaSound>>> owners = figuraHandlers.values().iterator();
+            while (owners.hasNext()) {
+                Map<String, Set<LuaSound>> byName = owners.next();
+                Iterator<Set<LuaSound>> names = byName.values().iterator();
+                while (names.hasNext()) {
+                    Set<LuaSound> sounds = names.next();
+                    sounds.removeIf(sound -> {
+                        ChannelAccess.ChannelHandle handle = sound.getHandle();
+                        if (handle == null)
+                            return !sound.isPending();
+                        if (muted) {
+                            handle.execute(Channel::stop);
+                            return true;
+                        }
+                        return handle.isStopped();
+                    });
+                    if (sounds.isEmpty())
+                        names.remove();
+                }
+                if (byName.isEmpty())
+                    owners.remove();
             }
         }
     }
@@ -94,8 +108,12 @@ public abstract class SoundEngineMixin implements SoundEngineAccessor {
         if (!this.loaded || category != SoundSource.PLAYERS)
             return;
 
-        for (LuaSound sound : figuraHandlers)
-            sound.volume(sound.getVolume());
+        synchronized (figuraHandlers) {
+            for (Map<String, Set<LuaSound>> byName : figuraHandlers.values())
+                for (Set<LuaSound> sounds : byName.values())
+                    for (LuaSound sound : sounds)
+                        sound.volume(sound.getVolume());
+        }
     }
 
     @Inject(at = @At("RETURN"), method = "stop(Lnet/minecraft/resources/ResourceLocation;Lnet/minecraft/sounds/SoundSource;)V")
@@ -137,7 +155,11 @@ public abstract class SoundEngineMixin implements SoundEngineAccessor {
 
     @Override @Intrinsic
     public void figura$addSound(LuaSound sound) {
-        figuraHandlers.add(sound);
+        synchronized (figuraHandlers) {
+            figuraHandlers.computeIfAbsent(sound.getOwner().owner, uuid -> new HashMap<>())
+                    .computeIfAbsent(sound.getId(), name -> new LinkedHashSet<>())
+                    .add(sound);
+        }
         for (SoundEventListener listener : this.listeners) {
             if (listener instanceof SubtitleOverlay overlay)
                 ((SubtitleOverlayAccessor) overlay).figura$PlaySound(sound);
@@ -149,36 +171,51 @@ public abstract class SoundEngineMixin implements SoundEngineAccessor {
         if (!this.loaded)
             return;
 
-        Iterator<LuaSound> iterator = figuraHandlers.iterator();
-        while (iterator.hasNext()) {
-            LuaSound sound = iterator.next();
-            ChannelHandleAccessor accessor = (ChannelHandleAccessor) sound.getHandle();
-            if (accessor != null && (owner == null || (accessor.getOwner().equals(owner) && (name == null || accessor.getName().equals(name))))) {
-                sound.stop();
-                iterator.remove();
+        List<LuaSound> stopped = new ArrayList<>();
+        synchronized (figuraHandlers) {
+            if (owner == null) {
+                for (Map<String, Set<LuaSound>> byName : figuraHandlers.values())
+                    for (Set<LuaSound> sounds : byName.values())
+                        stopped.addAll(sounds);
+                figuraHandlers.clear();
+            } else if (name == null) {
+                Map<String, Set<LuaSound>> byName = figuraHandlers.remove(owner);
+                if (byName != null) {
+                    for (Set<LuaSound> sounds : byName.values())
+                        stopped.addAll(sounds);
+                }
+            } else {
+                Map<String, Set<LuaSound>> byName = figuraHandlers.get(owner);
+                Set<LuaSound> sounds = byName == null ? null : byName.remove(name);
+                if (sounds != null) {
+                    stopped.addAll(sounds);
+                    if (byName.isEmpty())
+                        figuraHandlers.remove(owner);
+                }
             }
         }
+
+        for (LuaSound sound : stopped)
+            sound.stop();
     }
 
     @Override @Intrinsic
     public void figura$stopAllSounds() {
         if (this.loaded) {
-            for (LuaSound sound : figuraHandlers)
-                sound.stop();
-            figuraHandlers.clear();
+            figura$stopSound(null, null);
             figuraChannel.clear();
         }
     }
 
     @Override @Intrinsic
-    public ChannelAccess.ChannelHandle figura$createHandle(UUID owner, String name, Library.Pool pool) {
+    public CompletableFuture<ChannelAccess.ChannelHandle> figura$createHandle(UUID owner, String name, Library.Pool pool) {
         return figuraChannel.createHandle(pool).thenApply(channelHandle -> {
             if (channelHandle != null) {
                 ((ChannelHandleAccessor) channelHandle).setOwner(owner);
                 ((ChannelHandleAccessor) channelHandle).setName(name);
             }
             return channelHandle;
-        }).join();
+        });
     }
 
     @Override @Intrinsic
@@ -195,10 +232,34 @@ public abstract class SoundEngineMixin implements SoundEngineAccessor {
     public boolean figura$isPlaying(UUID owner) {
         if (!this.loaded)
             return false;
-        for (LuaSound sound : List.copyOf(figuraHandlers)) {
-            ChannelHandleAccessor accessor = (ChannelHandleAccessor) sound.getHandle();
-            if (sound.isPlaying() && accessor != null && accessor.getOwner().equals(owner))
-                return true;
+        synchronized (figuraHandlers) {
+            Map<String, Set<LuaSound>> byName = figuraHandlers.get(owner);
+            if (byName == null)
+                return false;
+            for (Set<LuaSound> sounds : byName.values()) {
+                for (LuaSound sound : sounds) {
+                    if (sound.isPlaying())
+                        return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override @Intrinsic
+    public boolean figura$isUsingSound(UUID owner, String name) {
+        if (!this.loaded)
+            return false;
+        synchronized (figuraHandlers) {
+            Map<String, Set<LuaSound>> byName = figuraHandlers.get(owner);
+            Set<LuaSound> sounds = byName == null ? null : byName.get(name);
+            if (sounds == null)
+                return false;
+            for (LuaSound sound : sounds) {
+                ChannelAccess.ChannelHandle handle = sound.getHandle();
+                if (sound.isPending() || handle != null && !handle.isStopped())
+                    return true;
+            }
         }
         return false;
     }
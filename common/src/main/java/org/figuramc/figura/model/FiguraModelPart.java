@@ -13,6 +13,7 @@ import org.figuramc.figura.math.matrix.FiguraMat3;
 import org.figuramc.figura.math.matrix.FiguraMat4;
 import org.figuramc.figura.math.vector.FiguraVec2;
 import org.figuramc.figura.math.vector.FiguraVec3;
+import org.figuramc.figura.model.rendering.BakedAvatarRenderer;
 import org.figuramc.figura.model.rendering.ImmediateAvatarRenderer;
 import org.figuramc.figura.model.rendering.Vertex;
 import org.figuramc.figura.model.rendering.texture.FiguraTexture;
@@ -39,7 +40,8 @@ public class FiguraModelPart implements Comparable<FiguraModelPart> {
     public FiguraModelPart parent;
 
     public final PartCustomization customization;
-    public PartCustomization savedCustomization;
+    public final PartCustomization savedCustomization = new PartCustomization();
+    public boolean hasSavedCustomization;
     public ParentType parentType = ParentType.None;
     public PartCustomization playerCustomization;
 
@@ -60,6 +62,8 @@ public class FiguraModelPart implements Comparable<FiguraModelPart> {
     public final FiguraMat4 savedPartToWorldMat = FiguraMat4.of().scale(1 / 16d, 1 / 16d, 1 / 16d);
 
     public final Map<Integer, List<Vertex>> vertices;
+    public boolean verticesExposed = false; // scripts can edit the vertices at any time once they got them
+    public BakedAvatarRenderer.BakedMesh[] bakedMeshes; // only used by the baked renderer
 
     @LuaWhitelist
     @LuaFieldDoc("model_part.pre_render")
@@ -84,7 +88,7 @@ public class FiguraModelPart implements Comparable<FiguraModelPart> {
             if (remainingComplexity[0] <= 0)
                 return false;
             remainingComplexity[0] -= facesByTexture.get(i);
-            avatarRenderer.pushFaces(facesByTexture.get(i) + Math.min(remainingComplexity[0], 0), remainingComplexity, textures.get(i), vertices.get(i));
+            avatarRenderer.pushFaces(this, facesByTexture.get(i) + Math.min(remainingComplexity[0], 0), remainingComplexity, textures.get(i), vertices.get(i));
         }
         return true;
     }
@@ -1382,6 +1386,7 @@ public class FiguraModelPart implements Comparable<FiguraModelPart> {
                 break;
             }
         }
+        verticesExposed = true;
         return vertices.get(index);
     }
 
@@ -1393,6 +1398,7 @@ public class FiguraModelPart implements Comparable<FiguraModelPart> {
             List<Vertex> list = vertices.get(i);
             if (list != null) map.put(textures.get(i).name, list);
         }
+        verticesExposed = true;
         return map;
     }
 
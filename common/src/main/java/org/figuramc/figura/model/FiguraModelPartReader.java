@@ -20,8 +20,11 @@ import org.figuramc.figura.math.vector.FiguraVec4;
 import org.figuramc.figura.model.rendering.Vertex;
 import org.figuramc.figura.model.rendering.texture.FiguraTextureSet;
 import org.figuramc.figura.model.rendering.texture.RenderTypes;
+import org.figuramc.figura.parsers.BlockbenchModelParser;
 import org.figuramc.figura.utils.MathUtils;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.*;
 
 /**
@@ -80,7 +83,7 @@ public class FiguraModelPartReader {
             smoothNormals = partCompound.getBoolean("smo");
 
         if (Configs.FORCE_SMOOTH_AVATAR.value || (smoothNormals && !vertices.isEmpty()))
-            smoothfy(vertices);
+            smoothfy(vertices, Configs.SMOOTH_WELD_EPSILON.value, Configs.ANGLE_WEIGHTED_NORMALS.value);
 
         // Read children
         ArrayList<FiguraModelPart> children = new ArrayList<>(0);
@@ -364,41 +367,119 @@ public class FiguraModelPartReader {
         ftDiff.subtract(from);
 
         // Iterate over faces, add them
-        for (String direction : faceData.keySet())
-            readFace(data.getCompound("cube_data"), facesByTexture, direction, vertices, from, ftDiff);
+        CompoundTag faces = data.getCompound("cube_data");
+        if (faces.getByte("fmt") == BlockbenchModelParser.PACKED_FORMAT) {
+            readPackedFaces(faces.getByteArray("fac"), facesByTexture, vertices, from, ftDiff);
+        } else {
+            for (String direction : faceData.keySet())
+                readFace(faces, facesByTexture, direction, vertices, from, ftDiff);
+        }
+    }
+
+    // packed faces, for each face:
+    // byte: index in n, s, w, e, u, d order, 4th bit set if the face has uvs
+    // varint: texture id
+    // byte: rotation / 90
+    // 4 little endian floats: uv, only if flagged
+    private static final String[] PACKED_FACES = {"n", "s", "w", "e", "u", "d"};
+
+    private static void readPackedFaces(byte[] bytes, List<Integer> facesByTexture, Map<Integer, List<Vertex>> vertices, FiguraVec3 from, FiguraVec3 ftDiff) {
+        int[] texIds = new int[PACKED_FACES.length];
+        int[] rotations = new int[PACKED_FACES.length];
+        FiguraVec4[] uvs = new FiguraVec4[PACKED_FACES.length];
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            int header = buffer.get();
+            int i = header & 0x7;
+            texIds[i] = readVarInt(buffer);
+            rotations[i] = buffer.get();
+            uvs[i] = (header & 0x8) != 0 ? FiguraVec4.of(buffer.getFloat(), buffer.getFloat(), buffer.getFloat(), buffer.getFloat()) : FiguraVec4.of();
+        }
+
+        // add them in the same order as the old format
+        for (String direction : faceData.keySet()) {
+            for (int i = 0; i < PACKED_FACES.length; i++) {
+                if (uvs[i] != null && PACKED_FACES[i].equals(direction))
+                    addFace(facesByTexture, direction, texIds[i], rotations[i], uvs[i], vertices, from, ftDiff);
+            }
+        }
     }
 
     private static void readFace(CompoundTag faces, List<Integer> facesByTexture, String direction, Map<Integer, List<Vertex>> vertices, FiguraVec3 from, FiguraVec3 ftDiff) {
         if (faces.contains(direction)) {
             CompoundTag face = faces.getCompound(direction);
-            short texId = face.getShort("tex");
-            facesByTexture.set(texId, facesByTexture.get(texId) + 1);
-
-            FiguraVec3 normal = faceData.get(direction)[4];
             int rotation = (int) (face.getFloat("rot") / 90f);
             FiguraVec4 uv = FiguraVec4.of();
             readVec4(uv, face, "uv");
-            for (int i = 0; i < 4; i++) {
-                FiguraVec3 tempPos = ftDiff.copy();
-                tempPos.multiply(faceData.get(direction)[i]);
-                tempPos.add(from);
-
-                FiguraVec2 normalizedUv = uvValues[(i + rotation) % 4];
-
-                List<Vertex> list = vertices.getOrDefault((int) texId, new ArrayList<>());
-                list.add(new Vertex(
-                        (float) tempPos.x, (float) tempPos.y, (float) tempPos.z,
-                        (float) Mth.lerp(normalizedUv.x, uv.x, uv.z),
-                        (float) Mth.lerp(normalizedUv.y, uv.y, uv.w),
-                        (float) normal.x, (float) normal.y, (float) normal.z
-                ));
-                vertices.put((int) texId, list);
-            }
+            addFace(facesByTexture, direction, face.getShort("tex"), rotation, uv, vertices, from, ftDiff);
         }
     }
 
-    private static void readMesh(List<Integer> facesByTexture, CompoundTag data, Map<Integer, List<Vertex>> vertices) {
+    private static void addFace(List<Integer> facesByTexture, String direction, int texId, int rotation, FiguraVec4 uv, Map<Integer, List<Vertex>> vertices, FiguraVec3 from, FiguraVec3 ftDiff) {
+        facesByTexture.set(texId, facesByTexture.get(texId) + 1);
+
+        FiguraVec3[] data = faceData.get(direction);
+        FiguraVec3 normal = data[4];
+        List<Vertex> list = vertices.computeIfAbsent(texId, i -> new ArrayList<>());
+        for (int i = 0; i < 4; i++) {
+            FiguraVec3 tempPos = ftDiff.copy();
+            tempPos.multiply(data[i]);
+            tempPos.add(from);
+
+            FiguraVec2 normalizedUv = uvValues[(i + rotation) % 4];
+
+            list.add(new Vertex(
+                    (float) tempPos.x, (float) tempPos.y, (float) tempPos.z,
+                    (float) Mth.lerp(normalizedUv.x, uv.x, uv.z),
+                    (float) Mth.lerp(normalizedUv.y, uv.y, uv.w),
+                    (float) normal.x, (float) normal.y, (float) normal.z
+            ));
+        }
+    }
+
+    // package private for the benchmarks
+    static void readMesh(List<Integer> facesByTexture, CompoundTag data, Map<Integer, List<Vertex>> vertices) {
         CompoundTag meshData = data.getCompound("mesh_data");
+        if (meshData.getByte("fmt") == BlockbenchModelParser.PACKED_FORMAT)
+            readPackedMesh(facesByTexture, meshData, vertices);
+        else
+            readLegacyMesh(facesByTexture, meshData, vertices);
+    }
+
+    private static void readPackedMesh(List<Integer> facesByTexture, CompoundTag meshData, Map<Integer, List<Vertex>> vertices) {
+        // mesh_data:
+        // "fmt": Byte, packed format version
+        // "vtx": Byte[], little endian floats, xyz
+        // "tex": Byte[], varints, (texID << 4) + numVerticesInFace
+        // "fac": Byte[], varints, just the indices of various vertices
+        // "uvs": Byte[], little endian floats, uv for each vertex
+        float[] verts = unpackFloats(meshData.getByteArray("vtx"));
+        float[] uvs = unpackFloats(meshData.getByteArray("uvs"));
+        ByteBuffer tex = ByteBuffer.wrap(meshData.getByteArray("tex"));
+        ByteBuffer fac = ByteBuffer.wrap(meshData.getByteArray("fac"));
+
+        int uvi = 0;
+        float[] posArr = new float[12];
+        float[] uvArr = new float[8];
+
+        while (tex.hasRemaining()) {
+            int packed = readVarInt(tex);
+            int texId = packed >> 4;
+            int numVerts = packed & 0xf;
+
+            for (int j = 0; j < numVerts; j++) {
+                int vid = readVarInt(fac);
+                System.arraycopy(verts, 3 * vid, posArr, 3 * j, 3);
+            }
+            System.arraycopy(uvs, uvi, uvArr, 0, 2 * numVerts);
+
+            addMeshFace(facesByTexture, vertices, texId, numVerts, posArr, uvArr);
+            uvi += 2 * numVerts;
+        }
+    }
+
+    private static void readLegacyMesh(List<Integer> facesByTexture, CompoundTag meshData, Map<Integer, List<Vertex>> vertices) {
         // mesh_data:
         // "vtx": List<Float>, xyz
         // "tex": List<Short>, (texID << 4) + numVerticesInFace
@@ -436,8 +517,6 @@ public class FiguraModelPartReader {
             // Extract the texture ID and number of vertices from the packed data
             int texId = packed >> 4;
             int numVerts = packed & 0xf;
-            // Increment the number of faces for the current texture ID
-            facesByTexture.set(texId, facesByTexture.get(texId) + 1);
 
             // Extract the vertex and UV data for the current texture
             for (int j = 0; j < numVerts; j++) {
@@ -456,36 +535,7 @@ public class FiguraModelPartReader {
                 uvArr[2 * j + 1] = uvs.getFloat(uvi + 2 * j + 1);
             }
 
-            // Calculate the normal vector for the current texture
-            FiguraVec3 p1 = FiguraVec3.of(posArr[0], posArr[1], posArr[2]);
-            FiguraVec3 p2 = FiguraVec3.of(posArr[3], posArr[4], posArr[5]);
-            FiguraVec3 p3 = FiguraVec3.of(posArr[6], posArr[7], posArr[8]);
-            p3.subtract(p2);
-            p1.subtract(p2);
-            p3.cross(p1);
-            p3.normalize();
-            // p3 now contains the normal vector
-
-            // Add the vertex data to the appropriate builder
-            for (int j = 0; j < numVerts; j++) {
-                List<Vertex> list = vertices.getOrDefault(texId, new ArrayList<>());
-                list.add(new Vertex(
-                        posArr[3 * j], posArr[3 * j + 1], posArr[3 * j + 2],
-                        uvArr[2 * j], uvArr[2 * j + 1],
-                        (float) p3.x, (float) p3.y, (float) p3.z
-                ));
-                vertices.put(texId, list);
-            }
-            // Add a vertex if necessary
-            if (numVerts == 3) {
-                List<Vertex> list = vertices.getOrDefault(texId, new ArrayList<>());
-                list.add(new Vertex(
-                        posArr[6], posArr[7], posArr[8],
-                        uvArr[4], uvArr[5],
-                        (float) p3.x, (float) p3.y, (float) p3.z
-                ));
-                vertices.put(texId, list);
-            }
+            addMeshFace(facesByTexture, vertices, texId, numVerts, posArr, uvArr);
 
             // Increment the counters for the vertex and UV lists
             vi += numVerts;
@@ -493,29 +543,227 @@ public class FiguraModelPartReader {
         }
     }
 
+    private static void addMeshFace(List<Integer> facesByTexture, Map<Integer, List<Vertex>> vertices, int texId, int numVerts, float[] posArr, float[] uvArr) {
+        // Increment the number of faces for the current texture ID
+        facesByTexture.set(texId, facesByTexture.get(texId) + 1);
+
+        // Calculate the normal vector for the current texture
+        FiguraVec3 p1 = FiguraVec3.of(posArr[0], posArr[1], posArr[2]);
+        FiguraVec3 p2 = FiguraVec3.of(posArr[3], posArr[4], posArr[5]);
+        FiguraVec3 p3 = FiguraVec3.of(posArr[6], posArr[7], posArr[8]);
+        p3.subtract(p2);
+        p1.subtract(p2);
+        p3.cross(p1);
+        p3.normalize();
+        // p3 now contains the normal vector
+
+        // Add the vertex data to the appropriate builder
+        List<Vertex> list = vertices.computeIfAbsent(texId, i -> new ArrayList<>());
+        for (int j = 0; j < numVerts; j++) {
+            list.add(new Vertex(
+                    posArr[3 * j], posArr[3 * j + 1], posArr[3 * j + 2],
+                    uvArr[2 * j], uvArr[2 * j + 1],
+                    (float) p3.x, (float) p3.y, (float) p3.z
+            ));
+        }
+        // Add a vertex if necessary
+        if (numVerts == 3) {
+            list.add(new Vertex(
+                    posArr[6], posArr[7], posArr[8],
+                    uvArr[4], uvArr[5],
+                    (float) p3.x, (float) p3.y, (float) p3.z
+            ));
+        }
+    }
+
+    private static float[] unpackFloats(byte[] bytes) {
+        float[] floats = new float[bytes.length / 4];
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(floats);
+        return floats;
+    }
+
+    private static int readVarInt(ByteBuffer buffer) {
+        int value = 0, shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
     // thanks to Scarlet Light#7611
-    private static void smoothfy(Map<Integer, List<Vertex>> verticesByTextuers) {
-        // separate vertices
-        Map<String, List<Vertex>> verticesByPos = new HashMap<>();
-        for (List<Vertex> vertices : verticesByTextuers.values()) {
-            for (Vertex vertex : vertices) {
-                String id = String.valueOf(vertex.getPos());
-                List<Vertex> list = verticesByPos.computeIfAbsent(id, str -> new ArrayList<>(4));
-                list.add(vertex);
+    // vertices are grouped by a spatial hash of the epsilon sized grid cell they are in, and two neighbouring cells are merged
+    // when any of their vertices are closer than epsilon on every axis, so such vertices always weld, even across a cell boundary
+    // welding is transitive, a row of vertices each closer than epsilon to the next shares one normal however long the row is
+    // an epsilon of 0 only welds exact positions
+    // package private for the benchmarks
+    static void smoothfy(Map<Integer, List<Vertex>> verticesByTextures, float epsilon, boolean angleWeighted) {
+        int count = 0;
+        for (List<Vertex> vertices : verticesByTextures.values())
+            count += vertices.size();
+        if (count == 0)
+            return;
+
+        // flatten vertices, and their weights
+        Vertex[] all = new Vertex[count];
+        float[] weights = new float[count];
+        int i = 0;
+        for (List<Vertex> vertices : verticesByTextures.values()) {
+            for (int j = 0; j < vertices.size(); j++) {
+                all[i] = vertices.get(j);
+                weights[i] = angleWeighted ? cornerAngle(vertices, j) : 1f;
+                i++;
+            }
+        }
+
+        // separate vertices by cell
+        float scale = epsilon > 0f ? 1f / epsilon : 0f;
+        int mask = Integer.highestOneBit(count) * 4 - 1;
+        int[] table = new int[mask + 1];
+        Arrays.fill(table, -1);
+        int[] cells = new int[count * 3];
+        int[] groups = new int[count];
+        // vertices of each cell, as a linked list
+        int[] heads = new int[count];
+        int[] next = new int[count];
+        int groupCount = 0;
+
+        for (i = 0; i < count; i++) {
+            Vertex vertex = all[i];
+            int cx = cell(vertex.x, scale), cy = cell(vertex.y, scale), cz = cell(vertex.z, scale);
+
+            int slot = findSlot(table, cells, mask, cx, cy, cz);
+            int group = table[slot];
+            if (group == -1) {
+                group = groupCount++;
+                table[slot] = group;
+                cells[group * 3] = cx;
+                cells[group * 3 + 1] = cy;
+                cells[group * 3 + 2] = cz;
+                heads[group] = -1;
+            }
+            groups[i] = group;
+            next[i] = heads[group];
+            heads[group] = i;
+        }
+
+        // merge neighbouring cells, each pair is visited once by only probing the "forward" half of the 26 neighbours
+        int[] parents = new int[groupCount];
+        for (int g = 0; g < groupCount; g++)
+            parents[g] = g;
+
+        if (scale > 0f) {
+            for (int g = 0; g < groupCount; g++) {
+                int cx = cells[g * 3], cy = cells[g * 3 + 1], cz = cells[g * 3 + 2];
+                for (int n = 14; n < 27; n++) {
+                    int h = table[findSlot(table, cells, mask, cx + n % 3 - 1, cy + n / 3 % 3 - 1, cz + n / 9 - 1)];
+                    if (h != -1 && root(parents, g) != root(parents, h) && anyWithin(all, heads, next, g, h, epsilon))
+                        union(parents, g, h);
+                }
             }
         }
 
-        // for all separated vertices
-        for (List<Vertex> vertices : verticesByPos.values()) {
-            // sum their normals
-            FiguraVec3 result = FiguraVec3.of();
-            for (Vertex vertex : vertices)
-                result.add(vertex.getNormal());
-            // normalize the normal
-            result.normalize();
-            // apply new normal
-            for (Vertex vertex : vertices)
-                vertex.setNormal(result);
+        // sum the normals per merged group
+        float[] sums = new float[groupCount * 3];
+        for (i = 0; i < count; i++) {
+            Vertex vertex = all[i];
+            int g = groups[i] = root(parents, groups[i]);
+
+            float weight = weights[i];
+            sums[g * 3] += vertex.nx * weight;
+            sums[g * 3 + 1] += vertex.ny * weight;
+            sums[g * 3 + 2] += vertex.nz * weight;
         }
+
+        // normalize and apply the new normals
+        for (i = 0; i < count; i++) {
+            int g = groups[i] * 3;
+            float x = sums[g], y = sums[g + 1], z = sums[g + 2];
+            double length = Math.sqrt(x * x + y * y + z * z);
+            if (length == 0d)
+                continue;
+
+            Vertex vertex = all[i];
+            vertex.nx = (float) (x / length);
+            vertex.ny = (float) (y / length);
+            vertex.nz = (float) (z / length);
+        }
+    }
+
+    // if any vertex of cell a is closer than epsilon on every axis to one of cell b
+    private static boolean anyWithin(Vertex[] all, int[] heads, int[] next, int a, int b, float epsilon) {
+        for (int i = heads[a]; i != -1; i = next[i]) {
+            Vertex v = all[i];
+            for (int j = heads[b]; j != -1; j = next[j]) {
+                Vertex w = all[j];
+                if (Math.abs(v.x - w.x) < epsilon && Math.abs(v.y - w.y) < epsilon && Math.abs(v.z - w.z) < epsilon)
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    private static int cell(float f, float scale) {
+        // adding 0 turns -0 into 0
+        return scale > 0f ? (int) Math.floor(f * scale) : Float.floatToIntBits(f + 0f);
+    }
+
+    // slot of the cell in the open addressing table, or the free slot where it would go
+    private static int findSlot(int[] table, int[] cells, int mask, int cx, int cy, int cz) {
+        int slot = (cx * 73856093 ^ cy * 19349663 ^ cz * 83492791) & mask;
+        int group;
+        while ((group = table[slot]) != -1 && (cells[group * 3] != cx || cells[group * 3 + 1] != cy || cells[group * 3 + 2] != cz))
+            slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    private static int root(int[] parents, int g) {
+        while (parents[g] != g)
+            g = parents[g] = parents[parents[g]];
+        return g;
+    }
+
+    private static void union(int[] parents, int a, int b) {
+        a = root(parents, a);
+        b = root(parents, b);
+        if (a != b)
+            parents[Math.max(a, b)] = Math.min(a, b);
+    }
+
+    // angle of the face corner at this vertex, faces are always stored as 4 vertices
+    private static float cornerAngle(List<Vertex> vertices, int index) {
+        int face = index - index % 4;
+        if (face + 3 >= vertices.size())
+            return 1f;
+
+        // triangles repeat their last vertex, which should not be counted twice
+        Vertex current = vertices.get(index);
+        if (index > face && samePos(current, vertices.get(index - 1)))
+            return 0f;
+
+        Vertex prev = null, next = null;
+        for (int k = 1; k < 4 && prev == null; k++) {
+            Vertex vertex = vertices.get(face + (index - face + 4 - k) % 4);
+            if (!samePos(vertex, current))
+                prev = vertex;
+        }
+        for (int k = 1; k < 4 && next == null; k++) {
+            Vertex vertex = vertices.get(face + (index - face + k) % 4);
+            if (!samePos(vertex, current))
+                next = vertex;
+        }
+        if (prev == null || next == null)
+            return 0f;
+
+        double ax = prev.x - current.x, ay = prev.y - current.y, az = prev.z - current.z;
+        double bx = next.x - current.x, by = next.y - current.y, bz = next.z - current.z;
+        double length = Math.sqrt((ax * ax + ay * ay + az * az) * (bx * bx + by * by + bz * bz));
+        return (float) Math.acos(Mth.clamp((ax * bx + ay * by + az * bz) / length, -1d, 1d));
+    }
+
+    private static boolean samePos(Vertex a, Vertex b) {
+        return a.x == b.x && a.y == b.y && a.z == b.z;
     }
 }
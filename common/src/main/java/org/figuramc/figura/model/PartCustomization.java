@@ -8,7 +8,8 @@ import org.figuramc.figura.math.vector.FiguraVec3;
 import org.figuramc.figura.model.rendering.texture.FiguraTextureSet;
 import org.figuramc.figura.model.rendering.texture.RenderTypes;
 
-import java.util.Stack;
+import java.util.Arrays;
+import java.util.EmptyStackException;
 
 public class PartCustomization {
 
@@ -25,6 +26,8 @@ public class PartCustomization {
     public final FiguraMat3 normalMatrix = FiguraMat3.of();
 
     public boolean needsMatrixRecalculation = false;
+    // set by setMatrix, the next setter call replaces that matrix even when it does not change any value
+    private boolean customMatrix = false;
     public boolean visible = true;
     public Boolean vanillaVisible = null;
 
@@ -129,14 +132,37 @@ public class PartCustomization {
         }
 
         needsMatrixRecalculation = false;
+        customMatrix = false;
+    }
+
+    /**
+     * Sets the vector, only flagging the matrices as dirty when the value actually changed,
+     * or when they hold a matrix from {@link #setMatrix(FiguraMat4)}.
+     */
+    private void setChanged(FiguraVec3 target, double x, double y, double z) {
+        if (target.x == x && target.y == y && target.z == z && !customMatrix)
+            return;
+        target.set(x, y, z);
+        markChanged();
+    }
+
+    private void addChanged(FiguraVec3 target, double x, double y, double z) {
+        if (x == 0 && y == 0 && z == 0 && !customMatrix)
+            return;
+        target.add(x, y, z);
+        markChanged();
+    }
+
+    private void markChanged() {
+        needsMatrixRecalculation = true;
+        customMatrix = false;
     }
 
     public void setPos(FiguraVec3 pos) {
         setPos(pos.x, pos.y, pos.z);
     }
     public void setPos(double x, double y, double z) {
-        position.set(x, y, z);
-        needsMatrixRecalculation = true;
+        setChanged(position, x, y, z);
     }
     public FiguraVec3 getPos() {
         return position.copy();
@@ -146,8 +172,7 @@ public class PartCustomization {
         setRot(rot.x, rot.y, rot.z);
     }
     public void setRot(double x, double y, double z) {
-        rotation.set(x, y, z);
-        needsMatrixRecalculation = true;
+        setChanged(rotation, x, y, z);
     }
     public FiguraVec3 getRot() {
         return rotation.copy();
@@ -157,8 +182,7 @@ public class PartCustomization {
         setScale(scale.x, scale.y, scale.z);
     }
     public void setScale(double x, double y, double z) {
-        scale.set(x, y, z);
-        needsMatrixRecalculation = true;
+        setChanged(scale, x, y, z);
     }
     public FiguraVec3 getScale() {
         return scale.copy();
@@ -168,44 +192,48 @@ public class PartCustomization {
         setPivot(pivot.x, pivot.y, pivot.z);
     }
     public void setPivot(double x, double y, double z) {
-        pivot.set(x, y, z);
-        needsMatrixRecalculation = true;
+        setChanged(pivot, x, y, z);
     }
     public FiguraVec3 getPivot() {
         return pivot.copy();
     }
+    public FiguraVec3 getPivot(FiguraVec3 target) {
+        return target.set(pivot);
+    }
 
     public void offsetPivot(FiguraVec3 pivot) {
         offsetPivot(pivot.x, pivot.y, pivot.z);
     }
     public void offsetPivot(double x, double y, double z) {
-        offsetPivot.set(x, y, z);
-        needsMatrixRecalculation = true;
+        setChanged(offsetPivot, x, y, z);
     }
     public void addOffsetPivot(FiguraVec3 pivot) {
         addOffsetPivot(pivot.x, pivot.y, pivot.z);
     }
     public void addOffsetPivot(double x, double y, double z) {
-        offsetPivot.add(x, y, z);
-        needsMatrixRecalculation = true;
+        addChanged(offsetPivot, x, y, z);
     }
     public FiguraVec3 getOffsetPivot() {
         return offsetPivot.copy();
     }
+    /**
+     * Writes the pivot plus the offset pivot into the given vector, without allocating.
+     */
+    public FiguraVec3 getTotalPivot(FiguraVec3 target) {
+        return target.set(pivot).add(offsetPivot);
+    }
 
     public void offsetPos(FiguraVec3 pos) {
         offsetPos(pos.x, pos.y, pos.z);
     }
     public void offsetPos(double x, double y, double z) {
-        offsetPos.set(x, y, z);
-        needsMatrixRecalculation = true;
+        setChanged(offsetPos, x, y, z);
     }
     public void addOffsetPos(FiguraVec3 pos) {
         addOffsetPos(pos.x, pos.y, pos.z);
     }
     public void addOffsetPos(double x, double y, double z) {
-        offsetPos.add(x, y, z);
-        needsMatrixRecalculation = true;
+        addChanged(offsetPos, x, y, z);
     }
     public FiguraVec3 getOffsetPos() {
         return offsetPos.copy();
@@ -215,15 +243,13 @@ public class PartCustomization {
         offsetRot(rot.x, rot.y, rot.z);
     }
     public void offsetRot(double x, double y, double z) {
-        offsetRot.set(x, y, z);
-        needsMatrixRecalculation = true;
+        setChanged(offsetRot, x, y, z);
     }
     public void addOffsetRot(FiguraVec3 rot) {
         addOffsetRot(rot.x, rot.y, rot.z);
     }
     public void addOffsetRot(double x, double y, double z) {
-        offsetRot.add(x, y, z);
-        needsMatrixRecalculation = true;
+        addChanged(offsetRot, x, y, z);
     }
     public FiguraVec3 getOffsetRot() {
         return offsetRot.copy();
@@ -233,37 +259,32 @@ public class PartCustomization {
         offsetScale(scale.x, scale.y, scale.z);
     }
     public void offsetScale(double x, double y, double z) {
-        offsetScale.set(x, y, z);
-        needsMatrixRecalculation = true;
+        setChanged(offsetScale, x, y, z);
     }
     public void addOffsetScale(FiguraVec3 scale) {
         addOffsetScale(scale.x, scale.y, scale.z);
     }
     public void addOffsetScale(double x, double y, double z) {
-        offsetScale.add(x, y, z);
-        needsMatrixRecalculation = true;
+        addChanged(offsetScale, x, y, z);
     }
     public FiguraVec3 getOffsetScale() {
         return offsetScale.copy();
     }
 
     public void setAnimPos(double x, double y, double z) {
-        animPos.set(x, y, z);
-        needsMatrixRecalculation = true;
+        setChanged(animPos, x, y, z);
     }
     public FiguraVec3 getAnimPos() {
         return animPos.copy();
     }
     public void setAnimRot(double x, double y, double z) {
-        animRot.set(x, y, z);
-        needsMatrixRecalculation = true;
+        setChanged(animRot, x, y, z);
     }
     public FiguraVec3 getAnimRot() {
         return animRot.copy();
     }
     public void setAnimScale(double x, double y, double z) {
-        animScale.set(x, y, z);
-        needsMatrixRecalculation = true;
+        setChanged(animScale, x, y, z);
     }
     public FiguraVec3 getAnimScale() {
         return animScale.copy();
@@ -276,6 +297,7 @@ public class PartCustomization {
         temp.transpose();
         normalMatrix.set(temp);
         needsMatrixRecalculation = false;
+        customMatrix = true;
     }
 
     public void setPositionMatrix(FiguraMat4 matrix) {
@@ -332,6 +354,7 @@ public class PartCustomization {
         target.light = light;
         target.overlay = overlay;
         target.needsMatrixRecalculation = needsMatrixRecalculation;
+        target.customMatrix = customMatrix;
         target.visible = visible;
         target.vanillaVisible = vanillaVisible;
         target.setPrimaryRenderType(primaryRenderType);
@@ -397,34 +420,60 @@ public class PartCustomization {
         GROUP
     }
 
+    /**
+     * Depth-indexed stack of accumulated customizations.
+     * Frames are allocated once and reused on every push, so the render traversal does not create garbage per part.
+     * Because of that, a frame returned by {@link #peek()} is only valid until it is popped;
+     * use {@link #snapshot(PartCustomization)} when the current state has to outlive the traversal.
+     */
     public static class PartCustomizationStack {
 
-        private final Stack<PartCustomization> stack = new Stack<>() {{
-            add(new PartCustomization());
-        }};
+        private PartCustomization[] frames = new PartCustomization[16];
+        private int depth = 0;
+
+        public PartCustomizationStack() {
+            frames[0] = new PartCustomization();
+        }
 
         public void push(PartCustomization customization) {
+            PartCustomization parent = frames[depth];
+
+            // grab the next frame, growing the pool when needed
+            if (++depth == frames.length)
+                frames = Arrays.copyOf(frames, depth * 2);
+
+            PartCustomization frame = frames[depth];
+            if (frame == null)
+                frames[depth] = frame = new PartCustomization();
+
             // copy stack
-            PartCustomization newCustomization = new PartCustomization();
-            stack.peek().copyTo(newCustomization);
+            parent.copyTo(frame);
 
             // modify
-            newCustomization.modify(customization);
-
-            // add
-            stack.push(newCustomization);
+            frame.modify(customization);
         }
 
         public void pop() {
-            stack.pop();
+            if (depth == 0)
+                throw new EmptyStackException();
+            depth--;
         }
 
         public PartCustomization peek() {
-            return stack.peek();
+            return frames[depth];
+        }
+
+        public PartCustomization snapshot() {
+            return snapshot(new PartCustomization());
+        }
+
+        public PartCustomization snapshot(PartCustomization target) {
+            peek().copyTo(target);
+            return target;
         }
 
         public boolean isEmpty() {
-            return stack.size() == 1;
+            return depth == 0;
         }
     }
 }
@@ -0,0 +1,175 @@
+package org.figuramc.figura.model.rendering;
+
+import org.figuramc.figura.avatar.Avatar;
+import org.figuramc.figura.math.matrix.FiguraMat3;
+import org.figuramc.figura.math.matrix.FiguraMat4;
+import org.figuramc.figura.model.FiguraModelPart;
+import org.figuramc.figura.model.PartCustomization;
+import org.figuramc.figura.model.rendering.texture.FiguraTextureSet;
+
+import java.util.List;
+
+/**
+ * Avatar renderer that packs the vertices of every part into flat float arrays once,
+ * transforming them in bulk and reusing the transformed result while the part matrices and texture size stay the same.
+ * Parts which had their vertices handed out to scripts fall back to the immediate path.
+ */
+public class BakedAvatarRenderer extends ImmediateAvatarRenderer {
+
+    // x, y, z, u, v, nx, ny, nz
+    public static final int STRIDE = 8;
+
+    public BakedAvatarRenderer(Avatar avatar) {
+        super(avatar);
+        bake(root);
+    }
+
+    private static void bake(FiguraModelPart part) {
+        int size = part.textures == null ? 0 : part.textures.size();
+        BakedMesh[] meshes = new BakedMesh[size];
+        for (int i = 0; i < size; i++) {
+            List<Vertex> vertices = part.vertices.get(i);
+            if (vertices != null)
+                meshes[i] = new BakedMesh(vertices);
+        }
+        part.bakedMeshes = meshes;
+
+        for (FiguraModelPart child : part.children)
+            bake(child);
+    }
+
+    private static BakedMesh getMesh(FiguraModelPart part, List<Vertex> vertices) {
+        // parts created by scripts were not there when loading
+        if (part.bakedMeshes == null)
+            bake(part);
+
+        for (BakedMesh mesh : part.bakedMeshes) {
+            if (mesh != null && mesh.vertices == vertices)
+                return mesh;
+        }
+
+        return null;
+    }
+
+    @Override
+    protected void pushToBuffer(FiguraModelPart part, int faceCount, VertexData vertexData, PartCustomization customization, FiguraTextureSet textureSet, List<Vertex> vertices) {
+        BakedMesh mesh = part.verticesExposed ? null : getMesh(part, vertices);
+        int vertexCount = faceCount * 4;
+        if (mesh == null || vertexCount > mesh.vertexCount) {
+            super.pushToBuffer(part, faceCount, vertexData, customization, textureSet, vertices);
+            return;
+        }
+
+        BakedMesh.Output output = vertexData.primary ? mesh.primary : mesh.secondary;
+        if (!output.matches(customization, textureSet, vertexData.vertexOffset, vertexCount)) {
+            // the last result was not drawn yet, so it cannot be overwritten
+            if (output.queuedGeneration == getBufferGeneration()) {
+                super.pushToBuffer(part, faceCount, vertexData, customization, textureSet, vertices);
+                return;
+            }
+            output.update(mesh.data, customization, textureSet, vertexData.vertexOffset, vertexCount);
+        }
+
+        output.queuedGeneration = getBufferGeneration();
+        pushBakedToBuffer(vertexData, customization, output.data, vertexCount);
+    }
+
+    public static class BakedMesh {
+        private final List<Vertex> vertices;
+        private final float[] data;
+        private final int vertexCount;
+
+        private final Output primary, secondary;
+
+        public BakedMesh(List<Vertex> vertices) {
+            this.vertices = vertices;
+            this.vertexCount = vertices.size();
+            this.data = new float[vertexCount * STRIDE];
+
+            int j = 0;
+            for (Vertex vertex : vertices) {
+                data[j++] = vertex.x;
+                data[j++] = vertex.y;
+                data[j++] = vertex.z;
+                data[j++] = vertex.u;
+                data[j++] = vertex.v;
+                data[j++] = vertex.nx;
+                data[j++] = vertex.ny;
+                data[j++] = vertex.nz;
+            }
+
+            this.primary = new Output(data.length);
+            this.secondary = new Output(data.length);
+        }
+
+        private static class Output {
+            private final float[] data;
+            private final FiguraMat4 positionMatrix = FiguraMat4.of();
+            private final FiguraMat3 normalMatrix = FiguraMat3.of();
+            private final FiguraMat3 uvMatrix = FiguraMat3.of();
+            private int width, height, vertexCount = -1;
+            private float vertexOffset;
+            private int queuedGeneration = -1;
+
+            private Output(int size) {
+                this.data = new float[size];
+            }
+
+            private boolean matches(PartCustomization customization, FiguraTextureSet textureSet, float vertexOffset, int vertexCount) {
+                return this.vertexCount == vertexCount && this.vertexOffset == vertexOffset &&
+                        width == textureSet.getWidth() && height == textureSet.getHeight() &&
+                        positionMatrix.equals(customization.positionMatrix) &&
+                        normalMatrix.equals(customization.normalMatrix) &&
+                        uvMatrix.equals(customization.uvMatrix);
+            }
+
+            private void update(float[] src, PartCustomization customization, FiguraTextureSet textureSet, float vertexOffset, int vertexCount) {
+                positionMatrix.set(customization.positionMatrix);
+                normalMatrix.set(customization.normalMatrix);
+                uvMatrix.set(customization.uvMatrix);
+                this.width = textureSet.getWidth();
+                this.height = textureSet.getHeight();
+                this.vertexOffset = vertexOffset;
+                this.vertexCount = vertexCount;
+
+                FiguraMat4 p = positionMatrix;
+                FiguraMat3 n = normalMatrix;
+                FiguraMat3 t = uvMatrix;
+                double w = width, h = height;
+
+                for (int i = 0, j = 0; i < vertexCount; i++, j += STRIDE) {
+                    // position
+                    double x = src[j], y = src[j + 1], z = src[j + 2];
+                    double px = p.v11 * x + p.v12 * y + p.v13 * z + p.v14;
+                    double py = p.v21 * x + p.v22 * y + p.v23 * z + p.v24;
+                    double pz = p.v31 * x + p.v32 * y + p.v33 * z + p.v34;
+                    if (vertexOffset != 0) {
+                        double pw = p.v41 * x + p.v42 * y + p.v43 * z + p.v44;
+                        double len = Math.sqrt(px * px + py * py + pz * pz + pw * pw);
+                        if (len > 0) {
+                            double scale = 1 + vertexOffset / len;
+                            px *= scale;
+                            py *= scale;
+                            pz *= scale;
+                        }
+                    }
+
+                    // uv, divided by the texture size to make it 0 to 1
+                    double u = src[j + 3] / w, v = src[j + 4] / h;
+
+                    // normal
+                    double nx = src[j + 5], ny = src[j + 6], nz = src[j + 7];
+
+                    data[j] = (float) px;
+                    data[j + 1] = (float) py;
+                    data[j + 2] = (float) pz;
+                    data[j + 3] = (float) (t.v11 * u + t.v12 * v + t.v13);
+                    data[j + 4] = (float) (t.v21 * u + t.v22 * v + t.v23);
+                    data[j + 5] = (float) (n.v11 * nx + n.v12 * ny + n.v13 * nz);
+                    data[j + 6] = (float) (n.v21 * nx + n.v22 * ny + n.v23 * nz);
+                    data[j + 7] = (float) (n.v31 * nx + n.v32 * ny + n.v33 * nz);
+                }
+            }
+        }
+    }
+}
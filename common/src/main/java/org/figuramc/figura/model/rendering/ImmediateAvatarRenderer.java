@@ -29,7 +29,6 @@ import org.figuramc.figura.utils.ui.UIHelper;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.function.Consumer;
 
 public class ImmediateAvatarRenderer extends AvatarRenderer {
 
@@ -37,8 +36,19 @@ public class ImmediateAvatarRenderer extends AvatarRenderer {
 
     public static final FiguraMat4 VIEW_TO_WORLD_MATRIX = FiguraMat4.of();
     private static final PartCustomization pivotOffsetter = new PartCustomization();
+    private static final FiguraMat4 positionCopy = FiguraMat4.of();
+    private static final FiguraMat3 normalCopy = FiguraMat3.of();
+    private static final FiguraVec3 pivotCopy = FiguraVec3.of();
+    private static final FiguraModelPart[] NO_CHILDREN = new FiguraModelPart[0];
     protected static final VertexBuffer VERTEX_BUFFER = new VertexBuffer();
 
+    private final VertexData primaryData = new VertexData(), secondaryData = new VertexData();
+
+    // children are iterated from a copy, as render functions may reparent parts mid traversal
+    // the copies are kept per depth so the traversal does not allocate a list per part
+    private FiguraModelPart[][] childrenCopies = new FiguraModelPart[16][];
+    private int childrenDepth;
+
     public ImmediateAvatarRenderer(Avatar avatar) {
         super(avatar);
 
@@ -133,10 +143,10 @@ public class ImmediateAvatarRenderer extends AvatarRenderer {
                         if (currentFilterScheme.parentType == ParentType.Item && part != itemToRender)
                             continue;
 
-                        boolean saved = part.savedCustomization != null;
+                        boolean saved = part.hasSavedCustomization;
                         if (saved) {
                             customizationStack.push(part.savedCustomization);
-                            part.savedCustomization = null;
+                            part.hasSavedCustomization = false;
                         }
 
                         renderPart(part, remainingComplexity, currentFilterScheme.initialValue);
@@ -209,8 +219,10 @@ public class ImmediateAvatarRenderer extends AvatarRenderer {
         FiguraMod.pushProfiler("predicate");
         Boolean thisPassedPredicate = currentFilterScheme.test(part.parentType, prevPredicate);
         if (thisPassedPredicate == null || (!custom.visible)) {
-            if (part.parentType.isRenderLayer)
-                part.savedCustomization = customizationStack.peek();
+            if (part.parentType.isRenderLayer) {
+                customizationStack.snapshot(part.savedCustomization);
+                part.hasSavedCustomization = true;
+            }
             FiguraMod.popProfiler(2);
             return true;
         }
@@ -243,13 +255,11 @@ public class ImmediateAvatarRenderer extends AvatarRenderer {
 
         // void blocked matrices
         // that's right, check only for previous predicate
-        FiguraMat4 positionCopy = null;
-        FiguraMat3 normalCopy = null;
         boolean voidMatrices = !allowHiddenTransforms && !prevPredicate;
         if (voidMatrices) {
             FiguraMod.popPushProfiler("clearMatrices");
-            positionCopy = custom.positionMatrix.copy();
-            normalCopy = custom.normalMatrix.copy();
+            positionCopy.set(custom.positionMatrix);
+            normalCopy.set(custom.normalMatrix);
             custom.positionMatrix.reset();
             custom.normalMatrix.reset();
         }
@@ -269,8 +279,7 @@ public class ImmediateAvatarRenderer extends AvatarRenderer {
             // recalculate world matrices
             FiguraMod.popPushProfiler("worldMatrices");
             if (allowMatrixUpdate) {
-                FiguraMat4 mat = partToWorldMatrices(custom);
-                part.savedPartToWorldMat.set(mat);
+                partToWorldMatrices(custom, part.savedPartToWorldMat);
             }
 
             // recalculate light
@@ -314,8 +323,7 @@ public class ImmediateAvatarRenderer extends AvatarRenderer {
                 // fix pivots
                 FiguraMod.pushProfiler("fixMatricesPivot");
 
-                FiguraVec3 pivot = custom.getPivot().copy().add(custom.getOffsetPivot());
-                pivotOffsetter.setPos(pivot);
+                pivotOffsetter.setPos(custom.getTotalPivot(pivotCopy));
                 pivotOffsetter.recalculate();
                 customizationStack.push(pivotOffsetter);
 
@@ -360,11 +368,24 @@ public class ImmediateAvatarRenderer extends AvatarRenderer {
 
         // render children
         FiguraMod.popPushProfiler("children");
-        for (FiguraModelPart child : List.copyOf(part.children)) {
-            if (!renderPart(child, remainingComplexity, thisPassedPredicate)) {
-                breakRender = true;
-                break;
+        int childCount = part.children.size();
+        if (childCount > 0) {
+            if (childrenDepth == childrenCopies.length)
+                childrenCopies = Arrays.copyOf(childrenCopies, childrenDepth * 2);
+
+            FiguraModelPart[] children = part.children.toArray(childrenCopies[childrenDepth] == null ? NO_CHILDREN : childrenCopies[childrenDepth]);
+            childrenCopies[childrenDepth++] = children;
+
+            for (int i = 0; i < childCount; i++) {
+                if (!renderPart(children[i], remainingComplexity, thisPassedPredicate)) {
+                    breakRender = true;
+                    break;
+                }
             }
+
+            // do not keep removed parts alive through the copy
+            Arrays.fill(children, 0, childCount, null);
+            childrenDepth--;
         }
 
         // reset the parent
@@ -405,16 +426,12 @@ public class ImmediateAvatarRenderer extends AvatarRenderer {
         queue.add(new Pair<>(currentPosMat, currentNormalMat)); // These are COPIES, so ok to add
     }
 
-    protected FiguraMat4 partToWorldMatrices(PartCustomization cust) {
-        FiguraMat4 customizePeek = customizationStack.peek().positionMatrix.copy();
-        customizePeek.multiply(VIEW_TO_WORLD_MATRIX);
-        FiguraVec3 piv = cust.getPivot();
-
-        FiguraMat4 translation = FiguraMat4.of();
-        translation.translate(piv);
-        customizePeek.rightMultiply(translation);
+    protected void partToWorldMatrices(PartCustomization cust, FiguraMat4 target) {
+        target.set(customizationStack.peek().positionMatrix);
+        target.multiply(VIEW_TO_WORLD_MATRIX);
 
-        return customizePeek;
+        FiguraVec3 piv = cust.getPivot(pivotCopy);
+        target.translateFirst(piv.x, piv.y, piv.z);
     }
 
     protected void calculatePartMatrices(FiguraModelPart part) {
@@ -447,8 +464,7 @@ public class ImmediateAvatarRenderer extends AvatarRenderer {
         if (thisPassedPredicate) {
             // part to world matrices
             FiguraMod.popPushProfiler("worldMatrices");
-            FiguraMat4 mat = partToWorldMatrices(custom);
-            part.savedPartToWorldMat.set(mat);
+            partToWorldMatrices(custom, part.savedPartToWorldMat);
         }
 
         // render children
@@ -464,15 +480,15 @@ public class ImmediateAvatarRenderer extends AvatarRenderer {
         FiguraMod.popProfiler(2);
     }
 
-    public void pushFaces(int faceCount, int[] remainingComplexity, FiguraTextureSet textureSet, List<Vertex> vertices) {
+    public void pushFaces(FiguraModelPart part, int faceCount, int[] remainingComplexity, FiguraTextureSet textureSet, List<Vertex> vertices) {
         // Handle cases that we can quickly
         if (faceCount == 0 || vertices.isEmpty())
             return;
 
         PartCustomization customization = customizationStack.peek();
 
-        VertexData primary = getTexture(customization, textureSet, true);
-        VertexData secondary = getTexture(customization, textureSet, false);
+        VertexData primary = getTexture(customization, textureSet, true, primaryData);
+        VertexData secondary = getTexture(customization, textureSet, false, secondaryData);
 
         if (primary.renderType == null && secondary.renderType == null) {
             remainingComplexity[0] += faceCount;
@@ -480,15 +496,15 @@ public class ImmediateAvatarRenderer extends AvatarRenderer {
         }
 
         if (primary.renderType != null)
-            pushToBuffer(faceCount, primary, customization, textureSet, vertices);
+            pushToBuffer(part, faceCount, primary, customization, textureSet, vertices);
         if (secondary.renderType != null)
-            pushToBuffer(faceCount, secondary, customization, textureSet, vertices);
+            pushToBuffer(part, faceCount, secondary, customization, textureSet, vertices);
     }
 
-    private VertexData getTexture(PartCustomization customization, FiguraTextureSet textureSet, boolean primary) {
+    private VertexData getTexture(PartCustomization customization, FiguraTextureSet textureSet, boolean primary, VertexData ret) {
         RenderTypes types = primary ? customization.getPrimaryRenderType() : customization.getSecondaryRenderType();
         TextureCustomization texture = primary ? customization.primaryTexture : customization.secondaryTexture;
-        VertexData ret = new VertexData();
+        ret.reset();
 
         if (types == RenderTypes.NONE)
             return ret;
@@ -531,70 +547,167 @@ public class ImmediateAvatarRenderer extends AvatarRenderer {
         return ret;
     }
 
-    private static final FiguraVec4 pos = FiguraVec4.of();
-    private static final FiguraVec3 normal = FiguraVec3.of();
-    private static final FiguraVec3 uv = FiguraVec3.of(0, 0, 1);
-    private void pushToBuffer(int faceCount, VertexData vertexData, PartCustomization customization, FiguraTextureSet textureSet, List<Vertex> vertices) {
-        int vertCount = faceCount * 4;
+    protected void pushToBuffer(FiguraModelPart part, int faceCount, VertexData vertexData, PartCustomization customization, FiguraTextureSet textureSet, List<Vertex> vertices) {
+        BufferedVertices buffered = queueVertices(vertexData, customization, faceCount * 4);
+
+        buffered.positionMatrix.set(customization.positionMatrix);
+        buffered.normalMatrix.set(customization.normalMatrix);
+        buffered.uvMatrix.set(customization.uvMatrix);
+        buffered.uvFixer.set(textureSet.getWidth(), textureSet.getHeight(), 1); // Dividing by this makes uv 0 to 1
+        buffered.vertexOffset = vertexData.vertexOffset;
+        buffered.vertices = vertices;
+    }
+
+    /**
+     * Queues already transformed vertices, packed as {@link BakedAvatarRenderer#STRIDE} floats per vertex.
+     * The array is read when the buffers are consumed, so it must not be changed before that.
+     */
+    protected void pushBakedToBuffer(VertexData vertexData, PartCustomization customization, float[] baked, int vertexCount) {
+        BufferedVertices buffered = queueVertices(vertexData, customization, vertexCount);
+        buffered.baked = baked;
+    }
+
+    private BufferedVertices queueVertices(VertexData vertexData, PartCustomization customization, int vertexCount) {
+        // the customization is a reused stack frame, so take a snapshot of it for the deferred write
+        BufferedVertices buffered = VERTEX_BUFFER.getBufferFor(vertexData.renderType, vertexData.primary);
 
-        FiguraVec3 uvFixer = FiguraVec3.of();
-        uvFixer.set(textureSet.getWidth(), textureSet.getHeight(), 1); // Dividing by this makes uv 0 to 1
+        buffered.color.set(vertexData.color);
+        buffered.alpha = customization.alpha;
+        buffered.overlay = customization.overlay;
+        buffered.light = vertexData.fullBright ? LightTexture.FULL_BRIGHT : customization.light;
+        buffered.vertexCount = vertexCount;
+        return buffered;
+    }
+
+    /**
+     * Counts how many times the queued vertices were written, so the baked data queued before can be safely reused.
+     */
+    protected static int getBufferGeneration() {
+        return VERTEX_BUFFER.generation;
+    }
 
-        int overlay = customization.overlay;
-        int light = vertexData.fullBright ? LightTexture.FULL_BRIGHT : customization.light;
+    protected static class VertexData {
+        public RenderType renderType;
+        public boolean fullBright;
+        public float vertexOffset;
+        public FiguraVec3 color;
+        public boolean primary;
+
+        public void reset() {
+            renderType = null;
+            fullBright = false;
+            vertexOffset = 0;
+            color = null;
+            primary = false;
+        }
+    }
 
-        VERTEX_BUFFER.getBufferFor(vertexData.renderType, vertexData.primary, vertexConsumer -> {
-            for (int i = 0; i < vertCount; i++) {
+    private static class BufferedVertices {
+        private static final FiguraVec4 pos = FiguraVec4.of();
+        private static final FiguraVec3 normal = FiguraVec3.of();
+        private static final FiguraVec3 uv = FiguraVec3.of(0, 0, 1);
+
+        public final FiguraMat4 positionMatrix = FiguraMat4.of();
+        public final FiguraMat3 normalMatrix = FiguraMat3.of();
+        public final FiguraMat3 uvMatrix = FiguraMat3.of();
+        public final FiguraVec3 uvFixer = FiguraVec3.of();
+        public final FiguraVec3 color = FiguraVec3.of();
+        public float alpha, vertexOffset;
+        public int overlay, light;
+        public List<Vertex> vertices;
+        public float[] baked;
+        public int vertexCount;
+
+        public void write(VertexConsumer vertexConsumer) {
+            if (baked != null) {
+                writeBaked(vertexConsumer);
+                return;
+            }
+
+            for (int i = 0; i < vertexCount; i++) {
                 Vertex vertex = vertices.get(i);
 
                 pos.set(vertex.x, vertex.y, vertex.z, 1);
-                pos.transform(customization.positionMatrix);
-                pos.add(pos.normalized().scale(vertexData.vertexOffset));
+                pos.transform(positionMatrix);
+                if (vertexOffset != 0) {
+                    double len = pos.length();
+                    if (len > 0)
+                        pos.scale(1 + vertexOffset / len);
+                }
                 normal.set(vertex.nx, vertex.ny, vertex.nz);
-                normal.transform(customization.normalMatrix);
+                normal.transform(normalMatrix);
                 uv.set(vertex.u, vertex.v, 1);
                 uv.divide(uvFixer);
-                uv.transform(customization.uvMatrix);
+                uv.transform(uvMatrix);
 
                 vertexConsumer
                         .vertex(pos.x, pos.y, pos.z)
-                        .color((float) vertexData.color.x, (float) vertexData.color.y, (float) vertexData.color.z, customization.alpha)
+                        .color((float) color.x, (float) color.y, (float) color.z, alpha)
                         .uv((float) uv.x, (float) uv.y)
                         .overlayCoords(overlay)
                         .uv2(light)
                         .normal((float) normal.x, (float) normal.y, (float) normal.z)
                         .endVertex();
             }
-        });
-    }
 
-    private static class VertexData {
-        public RenderType renderType;
-        public boolean fullBright;
-        public float vertexOffset;
-        public FiguraVec3 color;
-        public boolean primary;
+            // do not keep the part vertices alive while pooled
+            vertices = null;
+        }
+
+        private void writeBaked(VertexConsumer vertexConsumer) {
+            float r = (float) color.x, g = (float) color.y, b = (float) color.z;
+            int stride = BakedAvatarRenderer.STRIDE;
+            for (int i = 0, j = 0; i < vertexCount; i++, j += stride) {
+                vertexConsumer
+                        .vertex(baked[j], baked[j + 1], baked[j + 2])
+                        .color(r, g, b, alpha)
+                        .uv(baked[j + 3], baked[j + 4])
+                        .overlayCoords(overlay)
+                        .uv2(light)
+                        .normal(baked[j + 5], baked[j + 6], baked[j + 7])
+                        .endVertex();
+            }
+            baked = null;
+        }
     }
 
     private static class VertexBuffer {
-        private final HashMap<RenderType, List<Consumer<VertexConsumer>>> primaryBuffers = new LinkedHashMap<>();
-        private final HashMap<RenderType, List<Consumer<VertexConsumer>>> secondaryBuffers = new LinkedHashMap<>();
+        private final HashMap<RenderType, List<BufferedVertices>> primaryBuffers = new LinkedHashMap<>();
+        private final HashMap<RenderType, List<BufferedVertices>> secondaryBuffers = new LinkedHashMap<>();
+        private final List<BufferedVertices> pool = new ArrayList<>();
+        private int used = 0;
+        private int generation = 0;
+
+        public BufferedVertices getBufferFor(RenderType renderType, boolean primary) {
+            BufferedVertices buffered;
+            if (used < pool.size()) {
+                buffered = pool.get(used);
+            } else {
+                buffered = new BufferedVertices();
+                pool.add(buffered);
+            }
+            used++;
 
-        public void getBufferFor(RenderType renderType, boolean primary, Consumer<VertexConsumer> consumer) {
-            HashMap<RenderType, List<Consumer<VertexConsumer>>> buffer = primary ? primaryBuffers : secondaryBuffers;
-            List<Consumer<VertexConsumer>> list = buffer.computeIfAbsent(renderType, renderType1 -> new ArrayList<>());
-            list.add(consumer);
+            HashMap<RenderType, List<BufferedVertices>> buffer = primary ? primaryBuffers : secondaryBuffers;
+            List<BufferedVertices> list = buffer.computeIfAbsent(renderType, renderType1 -> new ArrayList<>());
+            list.add(buffered);
+            return buffered;
         }
 
         public void consume(boolean primary, MultiBufferSource bufferSource) {
-            HashMap<RenderType, List<Consumer<VertexConsumer>>> map = primary ? primaryBuffers : secondaryBuffers;
-            for (Map.Entry<RenderType, List<Consumer<VertexConsumer>>> entry : map.entrySet()) {
+            HashMap<RenderType, List<BufferedVertices>> map = primary ? primaryBuffers : secondaryBuffers;
+            for (Map.Entry<RenderType, List<BufferedVertices>> entry : map.entrySet()) {
                 VertexConsumer vertexConsumer = bufferSource.getBuffer(entry.getKey());
-                List<Consumer<VertexConsumer>> consumers = entry.getValue();
-                for (Consumer<VertexConsumer> consumer : consumers)
-                    consumer.accept(vertexConsumer);
+                for (BufferedVertices buffered : entry.getValue())
+                    buffered.write(vertexConsumer);
             }
             map.clear();
+
+            // everything was written, so the pooled entries can be handed out again
+            if (primaryBuffers.isEmpty() && secondaryBuffers.isEmpty()) {
+                used = 0;
+                generation++;
+            }
         }
     }
 }
@@ -57,6 +57,12 @@ public class FiguraTexture extends SimpleTexture {
     private NativeImage backup;
     private boolean isClosed = false;
 
+    /**
+     * Bounds of the pixels modified since the last upload, and the size the GPU texture was allocated with.
+     */
+    private int dirtyMinX = Integer.MAX_VALUE, dirtyMinY = Integer.MAX_VALUE, dirtyMaxX = -1, dirtyMaxY = -1;
+    private int uploadedWidth = -1, uploadedHeight = -1;
+
     public FiguraTexture(Avatar owner, String name, byte[] data) {
         super(new FiguraIdentifier("avatar_tex/" + owner.owner + "/" + UUID.randomUUID()));
 
@@ -119,10 +125,36 @@ public class FiguraTexture extends SimpleTexture {
         if (dirty && !isClosed) {
             dirty = false;
 
+            int width = texture.getWidth();
+            int height = texture.getHeight();
+            boolean full = uploadedWidth != width || uploadedHeight != height;
+
+            // nothing changed since the last upload
+            if (!full && dirtyMaxX < dirtyMinX)
+                return;
+
+            int x = full ? 0 : dirtyMinX;
+            int y = full ? 0 : dirtyMinY;
+            int w = full ? width : dirtyMaxX - dirtyMinX + 1;
+            int h = full ? height : dirtyMaxY - dirtyMinY + 1;
+
+            clearDirtyRegion();
+            uploadedWidth = width;
+            uploadedHeight = height;
+
             RenderCall runnable = () -> {
+                if (isClosed)
+                    return;
+
                 // Upload texture to GPU.
-                TextureUtil.prepareImage(this.getId(), texture.getWidth(), texture.getHeight());
-                texture.upload(0, 0, 0, false);
+                // allocate the texture only when its size changes, otherwise only upload the modified region
+                if (full) {
+                    TextureUtil.prepareImage(this.getId(), width, height);
+                    texture.upload(0, 0, 0, false);
+                } else {
+                    this.bind();
+                    texture.upload(0, x, y, x, y, w, h, false, false);
+                }
             };
 
             if (RenderSystem.isOnRenderThreadOrInit()) {
@@ -133,6 +165,25 @@ public class FiguraTexture extends SimpleTexture {
         }
     }
 
+    private void markDirty(int x, int y, int width, int height) {
+        int minX = Math.max(x, 0);
+        int minY = Math.max(y, 0);
+        int maxX = Math.min(x + width, texture.getWidth()) - 1;
+        int maxY = Math.min(y + height, texture.getHeight()) - 1;
+        if (maxX < minX || maxY < minY)
+            return;
+
+        dirtyMinX = Math.min(dirtyMinX, minX);
+        dirtyMinY = Math.min(dirtyMinY, minY);
+        dirtyMaxX = Math.max(dirtyMaxX, maxX);
+        dirtyMaxY = Math.max(dirtyMaxY, maxY);
+    }
+
+    private void clearDirtyRegion() {
+        dirtyMinX = dirtyMinY = Integer.MAX_VALUE;
+        dirtyMaxX = dirtyMaxY = -1;
+    }
+
     public void writeTexture(Path dest) throws IOException {
         texture.writeToFile(dest);
     }
@@ -224,6 +275,7 @@ public class FiguraTexture extends SimpleTexture {
         try {
             backupImage();
             texture.setPixelRGBA(x, y, ColorUtils.rgbaToIntABGR(parseColor("setPixel", r, g, b, a)));
+            markDirty(x, y, 1, 1);
             return this;
         } catch (Exception e) {
             throw new LuaError(e.getMessage());
@@ -256,6 +308,7 @@ public class FiguraTexture extends SimpleTexture {
         try {
             backupImage();
             texture.fillRect(x, y, width, height, ColorUtils.rgbaToIntABGR(parseColor("fill", r, g, b, a)));
+            markDirty(x, y, width, height);
             return this;
         } catch (Exception e) {
             throw new LuaError(e.getMessage());
@@ -275,6 +328,7 @@ public class FiguraTexture extends SimpleTexture {
         if (modified) {
             this.texture.copyFrom(backup);
             this.modified = false;
+            markDirty(0, 0, getWidth(), getHeight());
         }
         return this;
     }
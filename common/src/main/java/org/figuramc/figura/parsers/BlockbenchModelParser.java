@@ -3,13 +3,18 @@ package org.figuramc.figura.parsers;
 import com.google.gson.*;
 import net.minecraft.nbt.*;
 import org.figuramc.figura.FiguraMod;
+import org.figuramc.figura.avatar.local.LocalFileCache;
+import org.figuramc.figura.config.Configs;
 import org.figuramc.figura.math.vector.FiguraVec3;
 import org.figuramc.figura.model.ParentType;
 import org.figuramc.figura.utils.IOUtils;
 import org.figuramc.figura.FiguraMod;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -23,6 +28,12 @@ public class BlockbenchModelParser {
 
     private final static Gson GSON = new GsonBuilder().create();
 
+    //version of the packed cube and mesh data, models without it use the old list based format
+    //released clients only read the list based format, so the packed one is only written when enabled in the config
+    //packed data is not smaller on disk, floats take 4 bytes either way, but it avoids holding a tag object per number while loaded
+    public static final byte PACKED_FORMAT = 1;
+    private final boolean packed = Configs.PACKED_MODEL_FORMAT.value;
+
     //offsets for usage of diverse models
     private int textureOffset = 0;
     private int animationOffset = 0;
@@ -33,10 +44,14 @@ public class BlockbenchModelParser {
     private final HashMap<String, TextureData> textureMap = new HashMap<>();
     private final HashMap<Integer, String> textureIdMap = new HashMap<>();
 
+    //external files the last parsed model looked up, stamped before they are read
+    private final Map<Path, LocalFileCache.Stamp> readFiles = new LinkedHashMap<>();
+
     //parser
     public ModelData parseModel(Path avatarFolder, Path sourceFile, String json, String modelName, String folders) throws Exception {
         // parse json -> object
         BlockbenchModel model = GSON.fromJson(json, BlockbenchModel.class);
+        readFiles.clear();
 
         //meta check
         if (!model.meta.model_format.equals("free") && !model.meta.model_format.contains(FiguraMod.MOD_ID))
@@ -81,6 +96,28 @@ public class BlockbenchModelParser {
         return new ModelData(textures, animationList, nbt);
     }
 
+    public Map<Path, LocalFileCache.Stamp> getReadFiles() {
+        return readFiles;
+    }
+
+    public int getTextureOffset() {
+        return textureOffset;
+    }
+
+    public int getAnimationOffset() {
+        return animationOffset;
+    }
+
+    public boolean isPacked() {
+        return packed;
+    }
+
+    //advances the offsets as if a model with the given amount of textures and animations was parsed
+    public void skipModel(int textures, int animations) {
+        textureOffset += textures;
+        animationOffset += animations;
+    }
+
     public static void parseParent(String name, CompoundTag nbt) {
         ParentType parentType = ParentType.get(name);
         if (parentType != ParentType.None)
@@ -137,6 +174,7 @@ public class BlockbenchModelParser {
                     p = p.toFile().getCanonicalFile().toPath();
 
                 p = p.normalize();
+                readFiles.putIfAbsent(p, LocalFileCache.stamp(p));
 
                 if (!Files.exists(p) || (avatar.getNameCount() > 1 && !p.startsWith(avatar))) {
                     // Compatibility with old Blockbench models. (BB 4.9-)
@@ -146,6 +184,7 @@ public class BlockbenchModelParser {
                             p = p.toFile().getCanonicalFile().toPath();
 
                         p = p.normalize();
+                        readFiles.putIfAbsent(p, LocalFileCache.stamp(p));
 
                         if (!Files.exists(p))
                             throw new IllegalStateException("File does not exist!");
@@ -283,8 +322,10 @@ public class BlockbenchModelParser {
 
     private CompoundTag parseCubeFaces(JsonObject faces) {
         CompoundTag nbt = new CompoundTag();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
 
-        for (String cubeFace : BlockbenchModel.CubeFace.FACES) {
+        for (int i = 0; i < BlockbenchModel.CubeFace.FACES.size(); i++) {
+            String cubeFace = BlockbenchModel.CubeFace.FACES.get(i);
             if (!faces.has(cubeFace))
                 continue;
 
@@ -306,20 +347,35 @@ public class BlockbenchModelParser {
             if (texture == null)
                 continue;
 
-            CompoundTag faceNbt = new CompoundTag();
-            faceNbt.putInt("tex", texture.id);
+            boolean hasUv = notZero(face.uv);
+            float[] uv = hasUv ? new float[]{face.uv[0] * texture.fixedSize[0], face.uv[1] * texture.fixedSize[1], face.uv[2] * texture.fixedSize[0], face.uv[3] * texture.fixedSize[1]} : null;
+
+            if (!packed) {
+                CompoundTag faceNbt = new CompoundTag();
+                faceNbt.putInt("tex", texture.id);
+                if (face.rotation != 0f)
+                    faceNbt.putFloat("rot", face.rotation);
+                if (hasUv)
+                    faceNbt.put("uv", toNbtList(uv));
+                nbt.put(String.valueOf(cubeFace.charAt(0)), faceNbt);
+                continue;
+            }
+
+            //face header, the face index with the 4th bit flagging if it has uvs
+            out.write(i | (hasUv ? 0x8 : 0));
+            writeVarInt(out, texture.id);
 
             //parse face
-            if (face.rotation != 0f)
-                faceNbt.putFloat("rot", face.rotation);
+            out.write((int) (face.rotation / 90f));
 
             //parse uv
-            if (notZero(face.uv)) {
-                float[] uv = {face.uv[0] * texture.fixedSize[0], face.uv[1] * texture.fixedSize[1], face.uv[2] * texture.fixedSize[0], face.uv[3] * texture.fixedSize[1]};
-                faceNbt.put("uv", toNbtList(uv));
-            }
+            if (hasUv)
+                out.writeBytes(packFloats(uv, 4));
+        }
 
-            nbt.put(String.valueOf(cubeFace.charAt(0)), faceNbt);
+        if (out.size() > 0) {
+            nbt.putByte("fmt", PACKED_FORMAT);
+            nbt.putByteArray("fac", out.toByteArray());
         }
 
         return nbt;
@@ -333,26 +389,24 @@ public class BlockbenchModelParser {
         //the map will be preserved since it is very common to meshes share the same vertices,
         //so we can reduce even more file size
         HashMap<String, Integer> verticesMap = new HashMap<>();
-        ListTag verticesList = new ListTag();
+        float[] verticesArr = new float[vertices.size() * 3];
 
         int index = 0;
         for (Map.Entry<String, JsonElement> entry : vertices.entrySet()) {
             verticesMap.put(entry.getKey(), index);
             float[] arr = jsonToFloat(entry.getValue().getAsJsonArray());
-            verticesList.add(FloatTag.valueOf(arr[0] + offset[0]));
-            verticesList.add(FloatTag.valueOf(arr[1] + offset[1]));
-            verticesList.add(FloatTag.valueOf(arr[2] + offset[2]));
+            verticesArr[3 * index] = arr[0] + offset[0];
+            verticesArr[3 * index + 1] = arr[1] + offset[1];
+            verticesArr[3 * index + 2] = arr[2] + offset[2];
             index++;
         }
 
         //parse faces
-        ListTag texesList = new ListTag();
-        ListTag uvsList = new ListTag();
-        ListTag facesList = new ListTag();
+        int[] texes = new int[faces.size()];
+        int[] indices = new int[faces.size() * 4];
+        float[] uvs = new float[faces.size() * 8];
+        int texCount = 0, indexCount = 0, uvCount = 0;
 
-        int bestType = 0; //byte
-        if (index > 255) bestType = 1; //short
-        if (index > 32767) bestType = 2; //int
         for (Map.Entry<String, JsonElement> entry : faces.entrySet()) {
             //convert json to java object
             BlockbenchModel.MeshFace face = GSON.fromJson(entry.getValue(), BlockbenchModel.MeshFace.class);
@@ -369,31 +423,64 @@ public class BlockbenchModelParser {
 
             //To get the texture id, shift right 4, to get the vertex count, bitmask with 0xf
             //This just stores both pieces of info in one number, to hopefully save some file size
-            short k = (short) ((texture.id << 4) + face.vertices.length);
-            texesList.add(ShortTag.valueOf(k));
+            texes[texCount++] = (texture.id << 4) + face.vertices.length;
 
             if (face.vertices.length > 3)
-                reorderVertices(face.vertices, verticesMap, verticesList);
+                reorderVertices(face.vertices, verticesMap, verticesArr);
 
             for (String vertex : face.vertices) {
                 //Face indices
-                Tag bestVal = switch (bestType) {
-                    case 0 -> ByteTag.valueOf(verticesMap.get(vertex).byteValue());
-                    case 1 -> ShortTag.valueOf(verticesMap.get(vertex).shortValue());
-                    case 2 -> IntTag.valueOf(verticesMap.get(vertex));
-                    default -> throw new IllegalStateException("Unexpected value: " + bestType);
-                };
-                facesList.add(bestVal);
+                indices[indexCount++] = verticesMap.get(vertex);
 
                 //UVs
                 float[] uv = jsonToFloat(face.uv.getAsJsonArray(vertex));
-                float u = uv[0] * texture.fixedSize[0];
-                float v = uv[1] * texture.fixedSize[1];
-                uvsList.add(FloatTag.valueOf(u));
-                uvsList.add(FloatTag.valueOf(v));
+                uvs[uvCount++] = uv[0] * texture.fixedSize[0];
+                uvs[uvCount++] = uv[1] * texture.fixedSize[1];
             }
         }
 
+        if (packed) {
+            ByteArrayOutputStream texBytes = new ByteArrayOutputStream();
+            for (int i = 0; i < texCount; i++)
+                writeVarInt(texBytes, texes[i]);
+            ByteArrayOutputStream indexBytes = new ByteArrayOutputStream();
+            for (int i = 0; i < indexCount; i++)
+                writeVarInt(indexBytes, indices[i]);
+
+            nbt.putByte("fmt", PACKED_FORMAT);
+            nbt.putByteArray("vtx", packFloats(verticesArr, verticesArr.length));
+            nbt.putByteArray("tex", texBytes.toByteArray());
+            nbt.putByteArray("fac", indexBytes.toByteArray());
+            nbt.putByteArray("uvs", packFloats(uvs, uvCount));
+            return nbt;
+        }
+
+        //list based format
+        ListTag verticesList = new ListTag();
+        for (float f : verticesArr)
+            verticesList.add(FloatTag.valueOf(f));
+
+        ListTag texesList = new ListTag();
+        for (int i = 0; i < texCount; i++)
+            texesList.add(ShortTag.valueOf((short) texes[i]));
+
+        int bestType = 0; //byte
+        if (index > 255) bestType = 1; //short
+        if (index > 32767) bestType = 2; //int
+        ListTag facesList = new ListTag();
+        for (int i = 0; i < indexCount; i++) {
+            int vertex = indices[i];
+            facesList.add(switch (bestType) {
+                case 0 -> ByteTag.valueOf((byte) vertex);
+                case 1 -> ShortTag.valueOf((short) vertex);
+                default -> IntTag.valueOf(vertex);
+            });
+        }
+
+        ListTag uvsList = new ListTag();
+        for (int i = 0; i < uvCount; i++)
+            uvsList.add(FloatTag.valueOf(uvs[i]));
+
         nbt.put("vtx", verticesList);
         nbt.put("tex", texesList);
         nbt.put("fac", facesList);
@@ -401,13 +488,27 @@ public class BlockbenchModelParser {
         return nbt;
     }
 
+    private static byte[] packFloats(float[] floats, int length) {
+        ByteBuffer buffer = ByteBuffer.allocate(length * 4).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asFloatBuffer().put(floats, 0, length);
+        return buffer.array();
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
     private static final FiguraVec3
             v1 = FiguraVec3.of(),
             v2 = FiguraVec3.of(),
             v3 = FiguraVec3.of(),
             v4 = FiguraVec3.of();
 
-    private static void reorderVertices(String[] vertexNames, Map<String, Integer> nameToIndex, ListTag vertices) {
+    private static void reorderVertices(String[] vertexNames, Map<String, Integer> nameToIndex, float[] vertices) {
         //Fill in v1, v2, v3, v4 from the given vertices
         readVectors(vertexNames, nameToIndex, vertices);
 
@@ -424,15 +525,15 @@ public class BlockbenchModelParser {
 
     }
 
-    private static void readVectors(String[] vertexNames, Map<String, Integer> nameToIndex, ListTag vertices) {
+    private static void readVectors(String[] vertexNames, Map<String, Integer> nameToIndex, float[] vertices) {
         int i = nameToIndex.get(vertexNames[0]);
-        v1.set(vertices.getFloat(3*i), vertices.getFloat(3*i+1), vertices.getFloat(3*i+2));
+        v1.set(vertices[3 * i], vertices[3 * i + 1], vertices[3 * i + 2]);
         i = nameToIndex.get(vertexNames[1]);
-        v2.set(vertices.getFloat(3*i), vertices.getFloat(3*i+1), vertices.getFloat(3*i+2));
+        v2.set(vertices[3 * i], vertices[3 * i + 1], vertices[3 * i + 2]);
         i = nameToIndex.get(vertexNames[2]);
-        v3.set(vertices.getFloat(3*i), vertices.getFloat(3*i+1), vertices.getFloat(3*i+2));
+        v3.set(vertices[3 * i], vertices[3 * i + 1], vertices[3 * i + 2]);
         i = nameToIndex.get(vertexNames[3]);
-        v4.set(vertices.getFloat(3 * i), vertices.getFloat(3 * i + 1), vertices.getFloat(3 * i + 2));
+        v4.set(vertices[3 * i], vertices[3 * i + 1], vertices[3 * i + 2]);
     }
 
     private static final FiguraVec3
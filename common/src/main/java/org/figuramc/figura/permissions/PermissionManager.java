@@ -9,6 +9,10 @@ import org.figuramc.figura.entries.FiguraPermissions;
 import org.figuramc.figura.utils.IOUtils;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class PermissionManager {
 
@@ -20,6 +24,16 @@ public class PermissionManager {
     // custom permissions
     public static final Map<String, Collection<Permissions>> CUSTOM_PERMISSIONS = new HashMap<>();
 
+    // debounced saving
+    private static final long SAVE_DELAY = 1000;
+    private static final AtomicReference<CompoundTag> PENDING_SAVE = new AtomicReference<>();
+    private static final AtomicBoolean SAVE_SCHEDULED = new AtomicBoolean();
+
+    static {
+        // do not lose the last changes when the game closes before the save runs
+        Runtime.getRuntime().addShutdownHook(new Thread(PermissionManager::flushSave, "Figura Permissions Save"));
+    }
+
     // main method for loading the permissions
     public static void init() {
         // load groups
@@ -91,40 +105,59 @@ public class PermissionManager {
     }
 
     // saves a copy of permissions to disk
+    // the nbt is built right away, but written later off-thread, so repeated changes only write once
     public static void saveToDisk() {
-        IOUtils.saveCacheFile("permissions", nbt -> {
-            // create dummy lists for later
-            ListTag groupList = new ListTag();
-            ListTag playerList = new ListTag();
-
-            // get groups nbt
-            for (PermissionPack group : CATEGORIES.values()) {
-                if (!group.hasChanges())
-                    continue;
-
-                CompoundTag container = new CompoundTag();
-                group.writeNbt(container);
-                groupList.add(container);
-            }
-
-            // get players nbt
-            for (PermissionPack.PlayerPermissionPack pack : PLAYERS.values()) {
-                Permissions.Category category = getDefaultCategory();
-                if (category == null) category = Permissions.Category.DEFAULT;
-                if (!pack.hasChanges() && pack.getCategory() == category)
-                    continue;
+        CompoundTag nbt = new CompoundTag();
+        writeNbt(nbt);
+        PENDING_SAVE.set(nbt);
 
-                CompoundTag container = new CompoundTag();
-                pack.writeNbt(container);
-                playerList.add(container);
-            }
+        if (SAVE_SCHEDULED.compareAndSet(false, true))
+            CompletableFuture.runAsync(PermissionManager::flushSave, CompletableFuture.delayedExecutor(SAVE_DELAY, TimeUnit.MILLISECONDS));
+    }
 
-            // add lists to nbt
-            nbt.put("groups", groupList);
-            nbt.put("players", playerList);
+    // writes the pending permissions, if any
+    public static void flushSave() {
+        SAVE_SCHEDULED.set(false);
+        synchronized (PENDING_SAVE) {
+            CompoundTag pending = PENDING_SAVE.getAndSet(null);
+            if (pending == null)
+                return;
 
+            IOUtils.saveCacheFile("permissions", nbt -> nbt.merge(pending));
             FiguraMod.debug("Saved Permissions");
-        });
+        }
+    }
+
+    private static void writeNbt(CompoundTag nbt) {
+        // create dummy lists for later
+        ListTag groupList = new ListTag();
+        ListTag playerList = new ListTag();
+
+        // get groups nbt
+        for (PermissionPack group : CATEGORIES.values()) {
+            if (!group.hasChanges())
+                continue;
+
+            CompoundTag container = new CompoundTag();
+            group.writeNbt(container);
+            groupList.add(container);
+        }
+
+        // get players nbt
+        for (PermissionPack.PlayerPermissionPack pack : PLAYERS.values()) {
+            Permissions.Category category = getDefaultCategory();
+            if (category == null) category = Permissions.Category.DEFAULT;
+            if (!pack.hasChanges() && pack.getCategory() == category)
+                continue;
+
+            CompoundTag container = new CompoundTag();
+            pack.writeNbt(container);
+            playerList.add(container);
+        }
+
+        // add lists to nbt
+        nbt.put("groups", groupList);
+        nbt.put("players", playerList);
     }
 
     // get or crate player permissions
@@ -6,9 +6,14 @@ import net.minecraft.network.chat.MutableComponent;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public abstract class PermissionPack {
 
+    // bumped on any permission change, so the resolved snapshots know they are outdated
+    // new packs are also made when avatars are constructed, which is not always on the main thread, so the bump has to be atomic
+    private static final AtomicInteger VERSION = new AtomicInteger();
+
     // fields :p
     public String name; // uuid
     private boolean visible = true; // used on UI
@@ -30,8 +35,18 @@ public abstract class PermissionPack {
     public abstract Permissions.Category getCategory();
     public abstract void setCategory(CategoryPermissionPack newParent);
 
+    public static void invalidate() {
+        VERSION.incrementAndGet();
+    }
+
+    public static int getVersion() {
+        return VERSION.get();
+    }
+
     // read nbt
     public void loadNbt(CompoundTag nbt) {
+        invalidate();
+
         // default permissions
         CompoundTag perms = nbt.getCompound("permissions");
         for (Permissions setting : Permissions.DEFAULT) {
@@ -100,6 +115,7 @@ public abstract class PermissionPack {
     }
 
     public void insert(Permissions permissions, Integer value, String id) {
+        invalidate();
         if (Permissions.DEFAULT.contains(permissions)) {
             this.permissions.put(permissions, value);
             return;
@@ -136,6 +152,7 @@ public abstract class PermissionPack {
     }
 
     public void reset(Permissions permissions) {
+        invalidate();
         this.permissions.remove(permissions);
         for (Map<Permissions, Integer> map : customPermissions.values())
             map.remove(permissions);
@@ -143,6 +160,7 @@ public abstract class PermissionPack {
 
     // clear permissions
     public void clear() {
+        invalidate();
         permissions.clear();
         customPermissions.clear();
     }
@@ -204,6 +222,7 @@ public abstract class PermissionPack {
     public static class PlayerPermissionPack extends PermissionPack {
 
         public CategoryPermissionPack category;
+        private Snapshot snapshot;
 
         public PlayerPermissionPack(CategoryPermissionPack category, String name) {
             super(name);
@@ -228,6 +247,7 @@ public abstract class PermissionPack {
         @Override
         public void setCategory(CategoryPermissionPack newParent) {
             this.category = newParent;
+            invalidate();
         }
 
         @Override
@@ -244,8 +264,25 @@ public abstract class PermissionPack {
 
         @Override
         public int get(Permissions permissions) {
-            int result = super.get(permissions);
-            return result != -1 ? result : category.get(permissions);
+            Snapshot snapshot = this.snapshot;
+            if (snapshot == null || snapshot.version != getVersion() || permissions.index >= snapshot.values.length)
+                snapshot = resolve();
+            return snapshot.values[permissions.index];
+        }
+
+        // flattens the own, custom and category values into a single array, indexed by the permission index
+        private Snapshot resolve() {
+            int version = getVersion();
+            int[] values = new int[Permissions.count()];
+            for (int i = 0; i < values.length; i++) {
+                Permissions permissions = Permissions.byIndex(i);
+                int result = super.get(permissions);
+                values[i] = result != -1 ? result : category.get(permissions);
+            }
+
+            Snapshot snapshot = new Snapshot(version, values);
+            this.snapshot = snapshot;
+            return snapshot;
         }
 
         @Override
@@ -253,4 +290,6 @@ public abstract class PermissionPack {
             return category.isVisible();
         }
     }
+
+    private record Snapshot(int version, int[] values) {}
 }
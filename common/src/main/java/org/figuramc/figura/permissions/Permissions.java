@@ -6,11 +6,16 @@ import net.minecraft.network.chat.Style;
 import org.figuramc.figura.utils.ColorUtils;
 import org.figuramc.figura.utils.FiguraText;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 
 public class Permissions {
 
+    // every permission created, including the custom ones, in creation order
+    private static final List<Permissions> REGISTRY = Collections.synchronizedList(new ArrayList<>());
+
     // default permissions
     public static final Permissions
             INIT_INST = new Permissions("INIT_INST", 0, 524287, 0, 32768, 65536, 262144, Integer.MAX_VALUE),
@@ -71,6 +76,7 @@ public class Permissions {
 
     // stuff
     public final String name;
+    public final int index;
     private final List<Integer> defaults;
 
     // toggle check
@@ -97,6 +103,19 @@ public class Permissions {
         this.max = sliderMax;
         this.stepSize = stepSize;
         this.defaults = List.of(blocked, low, def, high, max);
+
+        synchronized (REGISTRY) {
+            this.index = REGISTRY.size();
+            REGISTRY.add(this);
+        }
+    }
+
+    public static int count() {
+        return REGISTRY.size();
+    }
+
+    public static Permissions byIndex(int index) {
+        return REGISTRY.get(index);
     }
 
     // infinity check :p
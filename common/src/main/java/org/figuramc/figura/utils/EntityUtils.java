@@ -1,6 +1,7 @@
 package org.figuramc.figura.utils;
 
 import com.mojang.authlib.GameProfile;
+import net.minecraft.client.Camera;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.multiplayer.ClientPacketListener;
 import net.minecraft.client.multiplayer.PlayerInfo;
@@ -14,6 +15,7 @@ import net.minecraft.world.phys.Vec3;
 import org.figuramc.figura.mixin.ClientLevelInvoker;
 import org.figuramc.figura.mixin.EntityAccessor;
 import org.figuramc.figura.mixin.gui.PlayerTabOverlayAccessor;
+import org.joml.Vector3f;
 
 import java.util.HashMap;
 import java.util.List;
@@ -28,6 +30,39 @@ public class EntityUtils {
         return ((ClientLevelInvoker) Minecraft.getInstance().level).getEntityGetter().get(uuid);
     }
 
+    // squared distance between the entity with the given uuid and the camera, or MAX_VALUE when it is not in the level
+    // main thread only
+    public static double getCameraDistanceSqr(UUID uuid) {
+        Entity entity = getEntityByUUID(uuid);
+        if (entity == null)
+            return Double.MAX_VALUE;
+
+        Camera camera = Minecraft.getInstance().gameRenderer.getMainCamera();
+        Vec3 pos = camera.isInitialized() ? camera.getPosition() : Vec3.ZERO;
+        return entity.position().distanceToSqr(pos);
+    }
+
+    // if the entity with the given uuid is roughly in front of the camera, within the field of view
+    public static boolean isInCameraView(UUID uuid) {
+        Entity entity = getEntityByUUID(uuid);
+        if (entity == null)
+            return false;
+
+        Camera camera = Minecraft.getInstance().gameRenderer.getMainCamera();
+        if (!camera.isInitialized())
+            return false;
+
+        Vec3 dir = entity.getBoundingBox().getCenter().subtract(camera.getPosition());
+        double len = dir.length();
+        if (len < 1e-3)
+            return true;
+
+        // the vertical fov is used as the half angle, wide enough to also cover the sides of the screen
+        Vector3f look = camera.getLookVector();
+        double cos = (dir.x * look.x() + dir.y * look.y() + dir.z * look.z()) / len;
+        return cos >= Math.cos(Math.toRadians(Minecraft.getInstance().options.fov().get()));
+    }
+
     public static Entity getViewedEntity(float distance) {
         Entity entity = Minecraft.getInstance().getCameraEntity();
         if (entity == null) return null;
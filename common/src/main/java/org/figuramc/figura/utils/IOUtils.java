@@ -9,9 +9,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.FileAlreadyExistsException;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.nio.file.*;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
@@ -143,6 +141,29 @@ public class IOUtils {
         }
     }
 
+    // writes to a temporary file first, then moves it over the target, so a crash mid write never leaves a truncated file
+    // every write gets its own temporary file, so concurrent writes of the same file do not clash
+    public static void writeFileAtomic(Path path, byte[] data) throws IOException {
+        if (data == null)
+            return;
+
+        Path temp = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+        try {
+            writeFile(temp, data);
+            try {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            // do not leave the temporary file behind when the write or the move failed
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {}
+            throw e;
+        }
+    }
+
     public static List<Path> listPaths(Path dir) {
         try (Stream<Path> stream = Files.list(dir)) {
             return stream.sorted(Comparator.comparing(IOUtils::getFileNameOrEmpty)).collect(Collectors.toList());
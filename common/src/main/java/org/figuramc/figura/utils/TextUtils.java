@@ -8,12 +8,15 @@ import net.minecraft.network.chat.*;
 import net.minecraft.util.FormattedCharSequence;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.function.BiFunction;
 import java.util.function.BiPredicate;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.regex.Pattern;
 
 public class TextUtils {
 
@@ -23,6 +26,24 @@ public class TextUtils {
 
     public static boolean allowScriptEvents;
 
+    // compiled split and match patterns for replaceInText, by their regex
+    private static final int PATTERN_CACHE_SIZE = 512;
+    private static final Map<String, Pattern[]> PATTERN_CACHE = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Pattern[]> eldest) {
+            return size() > PATTERN_CACHE_SIZE;
+        }
+    };
+
+    private static Pattern[] getReplacePatterns(String regex) {
+        synchronized (PATTERN_CACHE) {
+            return PATTERN_CACHE.computeIfAbsent(regex, r -> new Pattern[]{
+                    Pattern.compile("((?<=" + r + ")|(?=" + r + "))"),
+                    Pattern.compile(r)
+            });
+        }
+    }
+
     public static List<Component> splitText(FormattedText text, String regex) {
         // list to return
         ArrayList<Component> textList = new ArrayList<>();
@@ -106,6 +127,7 @@ public class TextUtils {
         // fix replacement object
         Component replace = replacement instanceof Component c ? c : Component.literal(replacement.toString());
         MutableComponent ret = Component.empty();
+        Pattern[] patterns = getReplacePatterns(regex);
 
         int[] ints = {beginIndex, times};
         text.visit((style, string) -> {
@@ -116,9 +138,9 @@ public class TextUtils {
             }
 
             // split
-            String[] split = string.split("((?<=" + regex + ")|(?=" + regex + "))");
+            String[] split = patterns[0].split(string);
             for (String s : split) {
-                if (!s.matches(regex)) {
+                if (!patterns[1].matcher(s).matches()) {
                     ret.append(Component.literal(s).withStyle(style));
                     continue;
                 }